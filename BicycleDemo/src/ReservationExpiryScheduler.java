@@ -0,0 +1,133 @@
+// ReservationExpiryScheduler.java
+// Expires bike reservations on time using a hashed timing wheel.
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class ReservationExpiryScheduler {
+    private static final long DEFAULT_TICK_MILLIS = 1000; // 1 second resolution
+    private static final int DEFAULT_WHEEL_SIZE = 512;    // one lap ~ 8.5 minutes; longer holds wait extra laps
+
+    private final long tickMillis;
+    private final List<Map<String, Entry>> wheel; // slot -> (bikeId -> entry)
+    private final Map<String, Entry> entries;     // bikeId -> entry, for O(1) cancel
+    private final Consumer<Bike> onExpire;
+    private final ScheduledExecutorService ticker;
+    private long currentTick; // last tick that has been processed
+
+    private static class Entry {
+        private final Bike bike;
+        private final long deadlineTick;
+
+        private Entry(Bike bike, long deadlineTick) {
+            this.bike = bike;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    public ReservationExpiryScheduler(Consumer<Bike> onExpire) {
+        this(onExpire, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    public ReservationExpiryScheduler(Consumer<Bike> onExpire, long tickMillis, int wheelSize) {
+        this.onExpire = onExpire;
+        this.tickMillis = tickMillis;
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new HashMap<>());
+        }
+        this.entries = new HashMap<>();
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reservation-expiry");
+            t.setDaemon(true); // Don't keep the program alive
+            return t;
+        });
+        ticker.scheduleAtFixedRate(() -> advanceTo(System.currentTimeMillis()), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules expiry of a bike's reservation at its reservationEndTime.
+     * Replaces any earlier entry for the same bike.
+     *
+     * @param bike The reserved bike.
+     */
+    public synchronized void schedule(Bike bike) {
+        cancel(bike.getBikeId());
+        // Round up so a hold never expires early
+        long deadlineTick = (bike.getReservationEndTime() + tickMillis - 1) / tickMillis;
+        if (deadlineTick <= currentTick) {
+            deadlineTick = currentTick + 1;
+        }
+        Entry entry = new Entry(bike, deadlineTick);
+        entries.put(bike.getBikeId(), entry);
+        wheel.get(slotOf(deadlineTick)).put(bike.getBikeId(), entry);
+    }
+
+    /**
+     * Cancels the pending expiry for a bike, if any. O(1).
+     *
+     * @param bikeId The ID of the bike.
+     */
+    public synchronized void cancel(String bikeId) {
+        Entry entry = entries.remove(bikeId);
+        if (entry != null) {
+            wheel.get(slotOf(entry.deadlineTick)).remove(bikeId);
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return entries.size();
+    }
+
+    /**
+     * Processes every tick up to the given time and expires due reservations.
+     * Called by the background ticker; can also be called directly to catch up.
+     *
+     * @param nowMillis The current time in milliseconds.
+     */
+    public void advanceTo(long nowMillis) {
+        List<Bike> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            if (targetTick <= currentTick) return;
+
+            // After a long pause one lap covers every slot
+            long steps = Math.min(targetTick - currentTick, wheel.size());
+            for (long i = 1; i <= steps; i++) {
+                Map<String, Entry> slot = wheel.get(slotOf(currentTick + i));
+                slot.values().removeIf(entry -> {
+                    if (entry.deadlineTick > targetTick) return false; // due in a later lap
+                    entries.remove(entry.bike.getBikeId());
+                    expired.add(entry.bike);
+                    return true;
+                });
+            }
+            currentTick = targetTick;
+        }
+
+        // Call back outside the wheel lock
+        for (Bike bike : expired) {
+            try {
+                onExpire.accept(bike);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private int slotOf(long tick) {
+        return (int) (tick % wheel.size());
+    }
+}
@@ -2,20 +2,31 @@
 // Represents a bicycle station in the Unibike system.
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 public class Station {
     private String stationId;
     private String name;
     private String location;
-    private List<Bike> bikes; // List of bikes currently at this station
+    private Map<String, Bike> bikes; // Bikes currently at this station, by bike ID (docking order)
+
+    // Indexes kept in sync by addBike/removeBike/updateBikeIndex
+    private Map<String, Bike> availableBikes;   // AVAILABLE bikes in FIFO order (first docked = first rented)
+    private Map<String, Bike> reservedByUser;   // userId -> bike here reserved by that user
+    private Map<String, String> reservationHolders; // bikeId -> userId, to unindex in O(1)
 
     public Station(String stationId, String name, String location) {
         this.stationId = stationId;
         this.name = name;
         this.location = location;
-        this.bikes = new ArrayList<>(); // Initialize with an empty list of bikes
+        this.bikes = new LinkedHashMap<>(); // Initialize with no bikes
+        this.availableBikes = new LinkedHashMap<>();
+        this.reservedByUser = new HashMap<>();
+        this.reservationHolders = new HashMap<>();
     }
 
     // Getters
@@ -32,7 +43,11 @@ public class Station {
     }
 
     public List<Bike> getBikes() {
-        return bikes;
+        return new ArrayList<>(bikes.values());
+    }
+
+    public int getBikeCount() {
+        return bikes.size();
     }
 
     // Setters for editing station details (for admin panel)
@@ -47,22 +62,17 @@ public class Station {
     // Methods to manage bikes at the station
     public void addBike(Bike bike) {
         if (bike != null) {
-            this.bikes.add(bike);
+            this.bikes.put(bike.getBikeId(), bike);
             bike.setCurrentStationId(this.stationId); // Update bike's current station
+            updateBikeIndex(bike);
             System.out.println("Bike " + bike.getBikeId() + " added to station " + name);
         }
     }
 
     public Bike removeBike(String bikeId) {
-        Bike bikeToRemove = null;
-        for (Bike bike : bikes) {
-            if (bike.getBikeId().equals(bikeId)) {
-                bikeToRemove = bike;
-                break;
-            }
-        }
+        Bike bikeToRemove = this.bikes.remove(bikeId);
         if (bikeToRemove != null) {
-            this.bikes.remove(bikeToRemove);
+            unindex(bikeToRemove);
             bikeToRemove.setCurrentStationId(null); // Bike is no longer at this station (conceptually, it's removed from this station's inventory)
             System.out.println("Bike " + bikeId + " removed from station " + name);
             return bikeToRemove;
@@ -72,10 +82,61 @@ public class Station {
         }
     }
 
+    public Bike getBike(String bikeId) {
+        return bikes.get(bikeId);
+    }
+
     public List<Bike> getAvailableBikes() {
-        return bikes.stream()
-                .filter(bike -> bike.getStatus() == Bike.BikeStatus.AVAILABLE)
-                .collect(Collectors.toList());
+        return new ArrayList<>(availableBikes.values());
+    }
+
+    public int getAvailableBikeCount() {
+        return availableBikes.size();
+    }
+
+    /**
+     * Returns the bike that has been available here the longest, without removing it. O(1).
+     *
+     * @return The next bike to rent, or null if none is available.
+     */
+    public Bike peekAvailableBike() {
+        Iterator<Bike> it = availableBikes.values().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Returns the bike at this station reserved by the given user. O(1).
+     *
+     * @param userId The ID of the user.
+     * @return The reserved bike, or null if the user has no reservation here.
+     */
+    public Bike getBikeReservedBy(String userId) {
+        return reservedByUser.get(userId);
+    }
+
+    /**
+     * Re-files a docked bike after its status or reservation changed.
+     * Must be called whenever the status of a bike at this station is changed.
+     *
+     * @param bike The bike whose state changed.
+     */
+    public void updateBikeIndex(Bike bike) {
+        if (!bikes.containsKey(bike.getBikeId())) return;
+        unindex(bike);
+        if (bike.getStatus() == Bike.BikeStatus.AVAILABLE) {
+            availableBikes.put(bike.getBikeId(), bike);
+        } else if (bike.getStatus() == Bike.BikeStatus.RESERVED && bike.getReservedByUserId() != null) {
+            reservedByUser.put(bike.getReservedByUserId(), bike);
+            reservationHolders.put(bike.getBikeId(), bike.getReservedByUserId());
+        }
+    }
+
+    private void unindex(Bike bike) {
+        availableBikes.remove(bike.getBikeId());
+        String holder = reservationHolders.remove(bike.getBikeId());
+        if (holder != null) {
+            reservedByUser.remove(holder, bike);
+        }
     }
 
     @Override
@@ -83,4 +144,4 @@ public class Station {
         return "Station ID: " + stationId + ", Name: " + name + ", Location: " + location +
                 ", Bikes at Station: " + bikes.size();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+// StressTest.java
+// Hammers UnibikeSystem from many threads and checks that no bike or money is lost.
+//
+// Run:  javac *.java && java StressTest [threads] [operationsPerThread]
+// Exits with status 1 if an invariant is broken.
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.DoubleAdder;
+
+public class StressTest {
+    private static final int STATIONS = 8;
+    private static final int BIKES = 200;
+    private static final int USERS = 96;
+    private static final double INITIAL_BALANCE = 6.0; // just above the rental minimum, so charges hit the floor
+    private static final double CHARGE = 0.25;
+    private static final double TOP_UP = 1.0;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // the system logs every operation
+
+        UnibikeSystem system = new UnibikeSystem();
+        List<String> stationIds = new ArrayList<>();
+        for (int s = 0; s < STATIONS; s++) {
+            String id = String.format("S%03d", s);
+            system.addStation(new Station(id, "Station " + s, "Lat:0, Lon:0"));
+            stationIds.add(id);
+        }
+        List<String> bikeIds = new ArrayList<>();
+        for (int b = 0; b < BIKES; b++) {
+            String id = String.format("B%04d", b);
+            String stationId = stationIds.get(b % STATIONS);
+            system.addBike(new Bike(id, stationId), stationId);
+            bikeIds.add(id);
+        }
+        List<User> users = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            User user = new User(String.format("U%03d", u), "User " + u, INITIAL_BALANCE, "pass", User.UserRole.STUDENT);
+            system.registerUser(user);
+            users.add(user);
+        }
+
+        // Money that entered or left a balance outside of rentals
+        DoubleAdder toppedUp = new DoubleAdder();
+        DoubleAdder charged = new DoubleAdder();
+
+        // Threads share the users, so the same user is rented for, returned and charged concurrently
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Throwable> failures = new ArrayList<>();
+        long began = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < operations; i++) {
+                        User user = users.get(random.nextInt(USERS));
+                        String stationId = stationIds.get(random.nextInt(STATIONS));
+                        int op = random.nextInt(100);
+                        if (op < 40) {
+                            system.rentBike(user.getUserId(), stationId);
+                        } else if (op < 80) {
+                            String rented = user.getRentedBikeId();
+                            if (rented != null) system.returnBike(user.getUserId(), rented, stationId);
+                        } else if (op < 88) {
+                            String bikeId = bikeIds.get(random.nextInt(BIKES));
+                            system.reserveBike(user.getUserId(), bikeId, 10);
+                            system.cancelReservation(user.getUserId(), bikeId);
+                        } else if (op < 96) {
+                            if (user.deductBalance(CHARGE)) charged.add(CHARGE);
+                        } else {
+                            user.addBalance(TOP_UP);
+                            toppedUp.add(TOP_UP);
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-" + t);
+            worker.start();
+        }
+        start.countDown();
+        done.await();
+        long elapsedMillis = (System.nanoTime() - began) / 1_000_000;
+
+        System.setOut(console);
+        List<String> problems = new ArrayList<>();
+        for (Throwable failure : failures) {
+            problems.add("worker threw " + failure);
+        }
+        checkFleet(system, stationIds, bikeIds, users, problems);
+        checkBalances(users, toppedUp.sum(), charged.sum(), problems);
+
+        System.out.println(threads + " threads x " + operations + " operations in " + elapsedMillis + " ms");
+        if (problems.isEmpty()) {
+            System.out.println("OK: docked + rented == " + BIKES + ", no negative balance, money conserved");
+            System.exit(0);
+        }
+        problems.forEach(p -> System.out.println("FAIL: " + p));
+        System.exit(1);
+    }
+
+    /** docked + rented == fleet, and every bike is in exactly one place */
+    private static void checkFleet(UnibikeSystem system, List<String> stationIds, List<String> bikeIds,
+                                   List<User> users, List<String> problems) {
+        Map<String, String> placeOf = new HashMap<>();
+        int docked = 0;
+        for (String stationId : stationIds) {
+            for (Bike bike : system.getStation(stationId).getBikes()) {
+                docked++;
+                String previous = placeOf.put(bike.getBikeId(), stationId);
+                if (previous != null) problems.add(bike.getBikeId() + " is at " + previous + " and " + stationId);
+                if (!stationId.equals(bike.getCurrentStationId())) {
+                    problems.add(bike.getBikeId() + " is docked at " + stationId + " but says " + bike.getCurrentStationId());
+                }
+                if (bike.getStatus() == Bike.BikeStatus.RENTED) {
+                    problems.add(bike.getBikeId() + " is docked at " + stationId + " but RENTED");
+                }
+            }
+        }
+        int rented = 0;
+        for (User user : users) {
+            String bikeId = user.getRentedBikeId();
+            if (bikeId == null) continue;
+            rented++;
+            String previous = placeOf.put(bikeId, user.getUserId());
+            if (previous != null) problems.add(bikeId + " is at " + previous + " and rented by " + user.getUserId());
+            if (system.getBike(bikeId).getStatus() != Bike.BikeStatus.RENTED) {
+                problems.add(bikeId + " is rented by " + user.getUserId() + " but " + system.getBike(bikeId).getStatus());
+            }
+        }
+        if (docked + rented != bikeIds.size()) {
+            problems.add("docked (" + docked + ") + rented (" + rented + ") != fleet (" + bikeIds.size() + ")");
+        }
+        for (String bikeId : bikeIds) {
+            if (!placeOf.containsKey(bikeId)) problems.add(bikeId + " is neither docked nor rented");
+        }
+    }
+
+    /** No balance below zero, and initial + top-ups == balances + charges + rental costs */
+    private static void checkBalances(List<User> users, double toppedUp, double charged, List<String> problems) {
+        double balances = 0;
+        double rentalCosts = 0;
+        for (User user : users) {
+            if (user.getBalance() < 0) problems.add(user.getUserId() + " has a negative balance: " + user.getBalance());
+            balances += user.getBalance();
+            for (RentalRecord record : user.getRentalHistory()) {
+                rentalCosts += record.getCost();
+            }
+        }
+        double expected = users.size() * INITIAL_BALANCE + toppedUp;
+        double actual = balances + charged + rentalCosts;
+        if (Math.abs(expected - actual) > 1e-6) {
+            problems.add("money not conserved: expected " + expected + ", found " + actual);
+        }
+    }
+}
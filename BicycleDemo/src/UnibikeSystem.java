@@ -1,30 +1,75 @@
 // UnibikeSystem.java
 // The core class managing all operations of the Unibike Campus Bicycle Sharing System.
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.UUID; // For generating unique IDs for rental records
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class UnibikeSystem {
     private Map<String, User> users;
     private Map<String, Station> stations;
     private Map<String, Bike> bikes; // All bikes in the system, regardless of location
+    private final ReservationExpiryScheduler expiryScheduler; // Expires holds in the background
 
     private static final double RENTAL_RATE_PER_MINUTE = 0.10; // Example rental rate: $0.10 per minute
     private static final double MINIMUM_BALANCE_FOR_RENTAL = 5.0; // Minimum balance required to rent a bike
 
+    // Concurrency: station state is guarded by a striped lock per station ID.
+    // Lock order is always: station stripes (ascending index) -> user -> bike.
+    private static final int LOCK_STRIPES = 64;
+    private final ReentrantLock[] stationLocks;
+
     public UnibikeSystem() {
-        this.users = new HashMap<>();
-        this.stations = new HashMap<>();
-        this.bikes = new HashMap<>();
+        this.users = new ConcurrentHashMap<>();
+        this.stations = new ConcurrentHashMap<>();
+        this.bikes = new ConcurrentHashMap<>();
+        this.stationLocks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stationLocks[i] = new ReentrantLock();
+        }
+        this.expiryScheduler = new ReservationExpiryScheduler(this::expireReservation);
+    }
+
+    // --- Locking Helpers ---
+
+    /**
+     * Locks the stripes of the given stations in ascending stripe order, so two
+     * operations over the same pair of stations can never deadlock.
+     * Null IDs (bike not at a station) are ignored.
+     *
+     * @param stationIds The IDs of the stations involved.
+     * @return The locks that were taken; pass them to unlock().
+     */
+    private List<ReentrantLock> lockStations(String... stationIds) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (String stationId : stationIds) {
+            if (stationId != null) {
+                stripes.add((stationId.hashCode() & 0x7fffffff) % LOCK_STRIPES);
+            }
+        }
+        List<ReentrantLock> taken = new ArrayList<>(stripes.size());
+        for (int stripe : stripes) {
+            stationLocks[stripe].lock();
+            taken.add(stationLocks[stripe]);
+        }
+        return taken;
+    }
+
+    private void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
     }
 
     // --- User Management ---
     public void registerUser(User user) {
-        if (users.containsKey(user.getUserId())) {
+        if (users.putIfAbsent(user.getUserId(), user) != null) {
             System.out.println("Error: User with ID " + user.getUserId() + " already exists.");
         } else {
-            users.put(user.getUserId(), user);
             System.out.println("User " + user.getName() + " (" + user.getRole() + ") registered successfully.");
         }
     }
@@ -91,10 +136,9 @@ public class UnibikeSystem {
 
     // --- Station Management ---
     public void addStation(Station station) {
-        if (stations.containsKey(station.getStationId())) {
+        if (stations.putIfAbsent(station.getStationId(), station) != null) {
             System.out.println("Error: Station with ID " + station.getStationId() + " already exists.");
         } else {
-            stations.put(station.getStationId(), station);
             System.out.println("Station " + station.getName() + " added successfully.");
         }
     }
@@ -116,10 +160,17 @@ public class UnibikeSystem {
         Station station = getStation(stationId);
         if (station != null) {
             System.out.println("\n--- Bikes at Station " + station.getName() + " (" + station.getStationId() + ") ---");
-            if (station.getBikes().isEmpty()) {
+            List<Bike> bikesHere;
+            List<ReentrantLock> locks = lockStations(stationId);
+            try {
+                bikesHere = station.getBikes();
+            } finally {
+                unlock(locks);
+            }
+            if (bikesHere.isEmpty()) {
                 System.out.println("No bikes at this station.");
             } else {
-                station.getBikes().forEach(System.out::println);
+                bikesHere.forEach(System.out::println);
             }
         } else {
             System.out.println("Station with ID " + stationId + " not found.");
@@ -170,11 +221,16 @@ public class UnibikeSystem {
             System.out.println("Removal Failed: Station " + stationId + " not found.");
             return;
         }
-        if (!station.getBikes().isEmpty()) {
-            System.out.println("Removal Failed: Station " + stationId + " still has " + station.getBikes().size() + " bikes. Please move them first.");
-            return;
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            if (station.getBikeCount() > 0) {
+                System.out.println("Removal Failed: Station " + stationId + " still has " + station.getBikeCount() + " bikes. Please move them first.");
+                return;
+            }
+            stations.remove(stationId);
+        } finally {
+            unlock(locks);
         }
-        stations.remove(stationId);
         System.out.println("Station " + stationId + " removed successfully.");
     }
 
@@ -185,12 +241,16 @@ public class UnibikeSystem {
             System.out.println("Error: Station " + stationId + " not found. Cannot add bike.");
             return;
         }
-        if (bikes.containsKey(bike.getBikeId())) {
-            System.out.println("Error: Bike with ID " + bike.getBikeId() + " already exists in the system.");
-            return;
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            if (bikes.putIfAbsent(bike.getBikeId(), bike) != null) {
+                System.out.println("Error: Bike with ID " + bike.getBikeId() + " already exists in the system.");
+                return;
+            }
+            station.addBike(bike); // Add bike to the station's list
+        } finally {
+            unlock(locks);
         }
-        bikes.put(bike.getBikeId(), bike);
-        station.addBike(bike); // Add bike to the station's list
         System.out.println("Bike " + bike.getBikeId() + " added to system and placed at station " + station.getName());
     }
 
@@ -217,7 +277,20 @@ public class UnibikeSystem {
             System.out.println("Edit Failed: Bike " + bikeId + " not found.");
             return;
         }
-        bike.setStatus(newStatus);
+        String stationId = bike.getCurrentStationId();
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            synchronized (bike) {
+                if (!sameStation(stationId, bike.getCurrentStationId())) {
+                    System.out.println("Edit Failed: Bike " + bikeId + " was moved. Please try again.");
+                    return;
+                }
+                bike.setStatus(newStatus);
+                refreshStationIndex(bike);
+            }
+        } finally {
+            unlock(locks);
+        }
         System.out.println("Bike " + bikeId + " status updated to " + newStatus + " by Admin " + admin.getName() + ".");
     }
 
@@ -239,18 +312,31 @@ public class UnibikeSystem {
             System.out.println("Removal Failed: Bike " + bikeId + " not found.");
             return;
         }
-        if (bike.getStatus() == Bike.BikeStatus.RENTED) {
-            System.out.println("Removal Failed: Bike " + bikeId + " is currently rented. Cannot remove.");
-            return;
-        }
-        // Remove from its current station if it's at one
-        if (bike.getCurrentStationId() != null) {
-            Station currentStation = getStation(bike.getCurrentStationId());
-            if (currentStation != null) {
-                currentStation.removeBike(bikeId);
+        String stationId = bike.getCurrentStationId();
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            synchronized (bike) {
+                if (bike.getStatus() == Bike.BikeStatus.RENTED) {
+                    System.out.println("Removal Failed: Bike " + bikeId + " is currently rented. Cannot remove.");
+                    return;
+                }
+                if (!sameStation(stationId, bike.getCurrentStationId())) {
+                    System.out.println("Removal Failed: Bike " + bikeId + " was moved. Please try again.");
+                    return;
+                }
+                // Remove from its current station if it's at one
+                if (stationId != null) {
+                    Station currentStation = getStation(stationId);
+                    if (currentStation != null) {
+                        currentStation.removeBike(bikeId);
+                    }
+                }
+                expiryScheduler.cancel(bikeId);
+                bikes.remove(bikeId);
             }
+        } finally {
+            unlock(locks);
         }
-        bikes.remove(bikeId);
         System.out.println("Bike " + bikeId + " permanently removed from the system by Admin " + admin.getName() + ".");
     }
 
@@ -275,54 +361,61 @@ public class UnibikeSystem {
             System.out.println("Rental Failed: Station " + stationId + " not found.");
             return;
         }
-        if (user.getRentedBikeId() != null) {
-            System.out.println("Rental Failed: " + user.getName() + " already has a bike (" + user.getRentedBikeId() + ") rented. Please return it first.");
-            return;
-        }
-        if (user.getBalance() < MINIMUM_BALANCE_FOR_RENTAL) {
-            System.out.println("Rental Failed: " + user.getName() + " has insufficient balance ($" + String.format("%.2f", user.getBalance()) + "). Minimum required: $" + String.format("%.2f", MINIMUM_BALANCE_FOR_RENTAL));
-            return;
-        }
 
-        // Check for expired reservations before renting
+        // Catch up on any reservation that expired since the last tick (before taking any lock)
         checkAndExpireReservations();
 
-        // Find an available or reserved bike at the station
-        Bike bikeToRent = null;
-        for (Bike bike : station.getBikes()) {
-            if (bike.getStatus() == Bike.BikeStatus.AVAILABLE) {
-                bikeToRent = bike;
-                break;
-            } else if (bike.getStatus() == Bike.BikeStatus.RESERVED && bike.getReservedByUserId().equals(userId)) {
-                // User is trying to rent their own reserved bike
-                bikeToRent = bike;
-                System.out.println("Renting your reserved bike " + bike.getBikeId() + ".");
-                break;
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            synchronized (user) {
+                if (user.getRentedBikeId() != null) {
+                    System.out.println("Rental Failed: " + user.getName() + " already has a bike (" + user.getRentedBikeId() + ") rented. Please return it first.");
+                    return;
+                }
+                if (user.getBalance() < MINIMUM_BALANCE_FOR_RENTAL) {
+                    System.out.println("Rental Failed: " + user.getName() + " has insufficient balance ($" + String.format("%.2f", user.getBalance()) + "). Minimum required: $" + String.format("%.2f", MINIMUM_BALANCE_FOR_RENTAL));
+                    return;
+                }
+
+                // Prefer the user's own reserved bike, otherwise the longest-docked available one (both O(1))
+                Bike bikeToRent = station.getBikeReservedBy(userId);
+                if (bikeToRent != null) {
+                    System.out.println("Renting your reserved bike " + bikeToRent.getBikeId() + ".");
+                } else {
+                    bikeToRent = station.peekAvailableBike();
+                }
+
+                if (bikeToRent == null) {
+                    System.out.println("Rental Failed: No available bikes at station " + station.getName() + " (" + station.getStationId() + ").");
+                    return;
+                }
+
+                synchronized (bikeToRent) {
+                    // If the bike is reserved by someone else, prevent rental
+                    if (bikeToRent.getStatus() == Bike.BikeStatus.RESERVED && !userId.equals(bikeToRent.getReservedByUserId())) {
+                        System.out.println("Rental Failed: Bike " + bikeToRent.getBikeId() + " is reserved by another user (" + bikeToRent.getReservedByUserId() + ").");
+                        return;
+                    }
+
+                    // Perform the rental
+                    if (bikeToRent.getStatus() == Bike.BikeStatus.RESERVED) {
+                        expiryScheduler.cancel(bikeToRent.getBikeId());
+                    }
+                    bikeToRent.setStatus(Bike.BikeStatus.RENTED);
+                    bikeToRent.setCurrentStationId(null); // Bike is no longer at a station
+                    bikeToRent.setReservedByUserId(null); // Clear reservation info
+                    bikeToRent.setReservationEndTime(0);
+                    station.removeBike(bikeToRent.getBikeId()); // Remove from station's list
+                    user.setRentedBikeId(bikeToRent.getBikeId());
+                    user.setRentalStartTime(System.currentTimeMillis()); // Set rental start time
+                }
+
+                System.out.println("Success: " + user.getName() + " rented Bike " + bikeToRent.getBikeId() + " from Station " + station.getName() + ".");
+                System.out.println("Remember to return the bike to any station when done.");
             }
+        } finally {
+            unlock(locks);
         }
-
-        if (bikeToRent == null) {
-            System.out.println("Rental Failed: No available bikes at station " + station.getName() + " (" + station.getStationId() + ").");
-            return;
-        }
-
-        // If the bike is reserved by someone else, prevent rental
-        if (bikeToRent.getStatus() == Bike.BikeStatus.RESERVED && !bikeToRent.getReservedByUserId().equals(userId)) {
-            System.out.println("Rental Failed: Bike " + bikeToRent.getBikeId() + " is reserved by another user (" + bikeToRent.getReservedByUserId() + ").");
-            return;
-        }
-
-        // Perform the rental
-        bikeToRent.setStatus(Bike.BikeStatus.RENTED);
-        bikeToRent.setCurrentStationId(null); // Bike is no longer at a station
-        bikeToRent.setReservedByUserId(null); // Clear reservation info
-        bikeToRent.setReservationEndTime(0);
-        station.removeBike(bikeToRent.getBikeId()); // Remove from station's list
-        user.setRentedBikeId(bikeToRent.getBikeId());
-        user.setRentalStartTime(System.currentTimeMillis()); // Set rental start time
-
-        System.out.println("Success: " + user.getName() + " rented Bike " + bikeToRent.getBikeId() + " from Station " + station.getName() + ".");
-        System.out.println("Remember to return the bike to any station when done.");
     }
 
     /**
@@ -350,50 +443,58 @@ public class UnibikeSystem {
             System.out.println("Return Failed: Return station " + returnStationId + " not found.");
             return;
         }
-        if (!bike.getStatus().equals(Bike.BikeStatus.RENTED)) {
-            System.out.println("Return Failed: Bike " + bikeId + " is not currently rented. Its status is " + bike.getStatus() + ".");
-            return;
-        }
-        if (!user.getRentedBikeId().equals(bikeId)) {
-            System.out.println("Return Failed: User " + user.getName() + " did not rent Bike " + bikeId + ". They rented " + user.getRentedBikeId() + ".");
-            return;
-        }
-
-        long rentalEndTime = System.currentTimeMillis();
-        long rentalStartTime = user.getRentalStartTime();
-        long durationMillis = rentalEndTime - rentalStartTime;
-        double durationMinutes = (double) durationMillis / (1000 * 60);
-
-        // Simple fare calculation: per minute
-        double rentalCost = durationMinutes * RENTAL_RATE_PER_MINUTE;
-        if (rentalCost < 0) rentalCost = 0; // Prevent negative cost if time somehow goes backwards
-
-        System.out.println("Calculating rental cost for Bike " + bikeId + " (Duration: " + String.format("%.2f", durationMinutes) + " minutes)...");
-        if (!user.deductBalance(rentalCost)) {
-            System.out.println("Return Failed: " + user.getName() + " has insufficient balance to cover rental cost ($" + String.format("%.2f", rentalCost) + "). Please add funds.");
-            // In a real system, you might put the bike into a 'unpaid' status or mark the user as owing.
-            // For now, we'll prevent the return if balance is insufficient.
-            return;
+        List<ReentrantLock> locks = lockStations(returnStationId);
+        try {
+            synchronized (user) {
+                synchronized (bike) {
+                    if (!bike.getStatus().equals(Bike.BikeStatus.RENTED)) {
+                        System.out.println("Return Failed: Bike " + bikeId + " is not currently rented. Its status is " + bike.getStatus() + ".");
+                        return;
+                    }
+                    if (!bikeId.equals(user.getRentedBikeId())) {
+                        System.out.println("Return Failed: User " + user.getName() + " did not rent Bike " + bikeId + ". They rented " + user.getRentedBikeId() + ".");
+                        return;
+                    }
+
+                    long rentalEndTime = System.currentTimeMillis();
+                    long rentalStartTime = user.getRentalStartTime();
+                    long durationMillis = rentalEndTime - rentalStartTime;
+                    double durationMinutes = (double) durationMillis / (1000 * 60);
+
+                    // Simple fare calculation: per minute
+                    double rentalCost = durationMinutes * RENTAL_RATE_PER_MINUTE;
+                    if (rentalCost < 0) rentalCost = 0; // Prevent negative cost if time somehow goes backwards
+
+                    System.out.println("Calculating rental cost for Bike " + bikeId + " (Duration: " + String.format("%.2f", durationMinutes) + " minutes)...");
+                    if (!user.deductBalance(rentalCost)) {
+                        System.out.println("Return Failed: " + user.getName() + " has insufficient balance to cover rental cost ($" + String.format("%.2f", rentalCost) + "). Please add funds.");
+                        // In a real system, you might put the bike into a 'unpaid' status or mark the user as owing.
+                        // For now, we'll prevent the return if balance is insufficient.
+                        return;
+                    }
+
+                    // Perform the return
+                    bike.setStatus(Bike.BikeStatus.AVAILABLE);
+                    bike.setCurrentStationId(returnStation.getStationId());
+                    returnStation.addBike(bike); // Add bike back to the station's list
+                    user.setRentedBikeId(null); // User no longer has a rented bike
+                    user.setRentalStartTime(0); // Reset rental start time for user
+
+                    // Create and add rental record to user's history
+                    String recordId = UUID.randomUUID().toString();
+                    RentalRecord record = new RentalRecord(recordId, userId, bikeId, user.getRentalHistory().isEmpty() ? "N/A" : user.getRentalHistory().get(user.getRentalHistory().size() - 1).getRentStationId(), rentalStartTime);
+                    record.setReturnStationId(returnStationId);
+                    record.setRentalEndTime(rentalEndTime);
+                    record.setCost(rentalCost);
+                    user.addRentalRecord(record);
+
+                    System.out.println("Success: Bike " + bikeId + " returned by " + user.getName() + " to Station " + returnStation.getName() + ".");
+                    System.out.println("Rental cost: $" + String.format("%.2f", rentalCost) + " deducted from " + user.getName() + "'s balance.");
+                }
+            }
+        } finally {
+            unlock(locks);
         }
-
-        // Perform the return
-        bike.setStatus(Bike.BikeStatus.AVAILABLE);
-        bike.setCurrentStationId(returnStation.getStationId());
-        returnStation.addBike(bike); // Add bike back to the station's list
-        user.setRentedBikeId(null); // User no longer has a rented bike
-        user.setRentalStartTime(0); // Reset rental start time for user
-
-        // Create and add rental record to user's history
-        String recordId = UUID.randomUUID().toString();
-        RentalRecord record = new RentalRecord(recordId, userId, bikeId, user.getRentalHistory().isEmpty() ? "N/A" : user.getRentalHistory().get(user.getRentalHistory().size() - 1).getRentStationId(), rentalStartTime);
-        record.setReturnStationId(returnStationId);
-        record.setRentalEndTime(rentalEndTime);
-        record.setCost(rentalCost);
-        user.addRentalRecord(record);
-
-
-        System.out.println("Success: Bike " + bikeId + " returned by " + user.getName() + " to Station " + returnStation.getName() + ".");
-        System.out.println("Rental cost: $" + String.format("%.2f", rentalCost) + " deducted from " + user.getName() + "'s balance.");
     }
 
     // --- Maintenance Operations (Admin only) ---
@@ -409,18 +510,31 @@ public class UnibikeSystem {
             System.out.println("Error: Bike " + bikeId + " not found.");
             return;
         }
-        if (bike.getStatus() == Bike.BikeStatus.RENTED) {
-            System.out.println("Error: Bike " + bikeId + " is currently rented and cannot be sent to maintenance.");
-            return;
-        }
-        if (bike.getCurrentStationId() != null) {
-            Station currentStation = getStation(bike.getCurrentStationId());
-            if (currentStation != null) {
-                currentStation.removeBike(bikeId); // Remove from station if it was there
+        String stationId = bike.getCurrentStationId();
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            synchronized (bike) {
+                if (bike.getStatus() == Bike.BikeStatus.RENTED) {
+                    System.out.println("Error: Bike " + bikeId + " is currently rented and cannot be sent to maintenance.");
+                    return;
+                }
+                if (!sameStation(stationId, bike.getCurrentStationId())) {
+                    System.out.println("Error: Bike " + bikeId + " was moved. Please try again.");
+                    return;
+                }
+                if (stationId != null) {
+                    Station currentStation = getStation(stationId);
+                    if (currentStation != null) {
+                        currentStation.removeBike(bikeId); // Remove from station if it was there
+                    }
+                }
+                expiryScheduler.cancel(bikeId);
+                bike.setStatus(Bike.BikeStatus.IN_MAINTENANCE);
+                bike.setCurrentStationId(null); // No longer at a station
             }
+        } finally {
+            unlock(locks);
         }
-        bike.setStatus(Bike.BikeStatus.IN_MAINTENANCE);
-        bike.setCurrentStationId(null); // No longer at a station
         System.out.println("Bike " + bikeId + " sent to maintenance by Admin " + admin.getName() + ".");
     }
 
@@ -441,12 +555,19 @@ public class UnibikeSystem {
             System.out.println("Error: Station " + stationId + " not found. Cannot place bike.");
             return;
         }
-        if (bike.getStatus() != Bike.BikeStatus.IN_MAINTENANCE) {
-            System.out.println("Error: Bike " + bikeId + " is not in maintenance. Its status is " + bike.getStatus() + ".");
-            return;
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            synchronized (bike) {
+                if (bike.getStatus() != Bike.BikeStatus.IN_MAINTENANCE) {
+                    System.out.println("Error: Bike " + bikeId + " is not in maintenance. Its status is " + bike.getStatus() + ".");
+                    return;
+                }
+                bike.setStatus(Bike.BikeStatus.AVAILABLE);
+                station.addBike(bike); // Add bike back to the station
+            }
+        } finally {
+            unlock(locks);
         }
-        bike.setStatus(Bike.BikeStatus.AVAILABLE);
-        station.addBike(bike); // Add bike back to the station
         System.out.println("Bike " + bikeId + " brought from maintenance and placed at station " + station.getName() + " by Admin " + admin.getName() + ".");
     }
 
@@ -471,20 +592,32 @@ public class UnibikeSystem {
             System.out.println("Reservation Failed: Bike " + bikeId + " not found.");
             return;
         }
-        if (bike.getStatus() != Bike.BikeStatus.AVAILABLE) {
-            System.out.println("Reservation Failed: Bike " + bikeId + " is not available for reservation. Current status: " + bike.getStatus() + ".");
-            return;
-        }
-        if (user.getRentedBikeId() != null) {
-            System.out.println("Reservation Failed: " + user.getName() + " already has a bike (" + user.getRentedBikeId() + ") rented. Cannot reserve another.");
-            return;
+        String stationId = bike.getCurrentStationId();
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            synchronized (user) {
+                synchronized (bike) {
+                    if (bike.getStatus() != Bike.BikeStatus.AVAILABLE || !sameStation(stationId, bike.getCurrentStationId())) {
+                        System.out.println("Reservation Failed: Bike " + bikeId + " is not available for reservation. Current status: " + bike.getStatus() + ".");
+                        return;
+                    }
+                    if (user.getRentedBikeId() != null) {
+                        System.out.println("Reservation Failed: " + user.getName() + " already has a bike (" + user.getRentedBikeId() + ") rented. Cannot reserve another.");
+                        return;
+                    }
+
+                    // Set bike status to RESERVED
+                    bike.setStatus(Bike.BikeStatus.RESERVED);
+                    bike.setReservedByUserId(userId);
+                    bike.setReservationEndTime(System.currentTimeMillis() + (durationMinutes * 60 * 1000)); // Calculate end time
+                    refreshStationIndex(bike);
+                    expiryScheduler.schedule(bike);
+                }
+            }
+        } finally {
+            unlock(locks);
         }
 
-        // Set bike status to RESERVED
-        bike.setStatus(Bike.BikeStatus.RESERVED);
-        bike.setReservedByUserId(userId);
-        bike.setReservationEndTime(System.currentTimeMillis() + (durationMinutes * 60 * 1000)); // Calculate end time
-
         System.out.println("Success: Bike " + bikeId + " reserved by " + user.getName() + " for " + durationMinutes + " minutes.");
     }
 
@@ -506,32 +639,79 @@ public class UnibikeSystem {
             System.out.println("Cancellation Failed: Bike " + bikeId + " not found.");
             return;
         }
-        if (bike.getStatus() != Bike.BikeStatus.RESERVED || !bike.getReservedByUserId().equals(userId)) {
-            System.out.println("Cancellation Failed: Bike " + bikeId + " is not reserved by " + user.getName() + " or is not in RESERVED status.");
-            return;
-        }
+        String stationId = bike.getCurrentStationId();
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            synchronized (bike) {
+                if (bike.getStatus() != Bike.BikeStatus.RESERVED || !userId.equals(bike.getReservedByUserId())) {
+                    System.out.println("Cancellation Failed: Bike " + bikeId + " is not reserved by " + user.getName() + " or is not in RESERVED status.");
+                    return;
+                }
 
-        // Revert bike status to AVAILABLE and clear reservation info
-        bike.setStatus(Bike.BikeStatus.AVAILABLE);
-        bike.setReservedByUserId(null);
-        bike.setReservationEndTime(0);
+                // Revert bike status to AVAILABLE and clear reservation info
+                expiryScheduler.cancel(bikeId);
+                bike.setStatus(Bike.BikeStatus.AVAILABLE);
+                bike.setReservedByUserId(null);
+                bike.setReservationEndTime(0);
+                refreshStationIndex(bike);
+            }
+        } finally {
+            unlock(locks);
+        }
 
         System.out.println("Success: Reservation for Bike " + bikeId + " cancelled by " + user.getName() + ".");
     }
 
     /**
-     * Checks all reserved bikes and sets them back to AVAILABLE if their reservation time has expired.
-     * In a real system, this would be called periodically (e.g., by a background thread).
+     * Expires every reservation that is due now.
+     * The expiry scheduler already does this in the background once per tick;
+     * calling it only processes the ticks that have elapsed, not the whole fleet.
      */
     public void checkAndExpireReservations() {
-        long currentTime = System.currentTimeMillis();
-        for (Bike bike : bikes.values()) {
-            if (bike.getStatus() == Bike.BikeStatus.RESERVED && bike.getReservationEndTime() > 0 && bike.getReservationEndTime() < currentTime) {
-                System.out.println("Reservation for Bike " + bike.getBikeId() + " by " + bike.getReservedByUserId() + " has expired. Setting status to AVAILABLE.");
-                bike.setStatus(Bike.BikeStatus.AVAILABLE);
-                bike.setReservedByUserId(null);
-                bike.setReservationEndTime(0);
+        expiryScheduler.advanceTo(System.currentTimeMillis());
+    }
+
+    /**
+     * Callback from the expiry scheduler: sets a reserved bike back to AVAILABLE
+     * if its reservation is still active and has run out.
+     *
+     * @param bike The bike whose reservation timer fired.
+     */
+    private void expireReservation(Bike bike) {
+        String stationId = bike.getCurrentStationId();
+        List<ReentrantLock> locks = lockStations(stationId);
+        try {
+            synchronized (bike) {
+                long currentTime = System.currentTimeMillis();
+                if (bike.getStatus() == Bike.BikeStatus.RESERVED && bike.getReservationEndTime() > 0 && bike.getReservationEndTime() <= currentTime
+                        && sameStation(stationId, bike.getCurrentStationId())) {
+                    System.out.println("Reservation for Bike " + bike.getBikeId() + " by " + bike.getReservedByUserId() + " has expired. Setting status to AVAILABLE.");
+                    bike.setStatus(Bike.BikeStatus.AVAILABLE);
+                    bike.setReservedByUserId(null);
+                    bike.setReservationEndTime(0);
+                    refreshStationIndex(bike);
+                }
             }
+        } finally {
+            unlock(locks);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Re-files a bike in its station's indexes after a status change.
+     *
+     * @param bike The bike whose status changed.
+     */
+    private void refreshStationIndex(Bike bike) {
+        if (bike.getCurrentStationId() != null) {
+            Station station = getStation(bike.getCurrentStationId());
+            if (station != null) {
+                station.updateBikeIndex(bike);
+            }
+        }
+    }
+
+    private static boolean sameStation(String expected, String actual) {
+        return expected == null ? actual == null : expected.equals(actual);
+    }
+}
\ No newline at end of file
@@ -41,7 +41,7 @@ public class User {
         return name;
     }
 
-    public double getBalance() {
+    public synchronized double getBalance() {
         return balance;
     }
 
@@ -74,7 +74,7 @@ public class User {
         this.rentalStartTime = rentalStartTime;
     }
 
-    public void setBalance(double balance) {
+    public synchronized void setBalance(double balance) {
         this.balance = balance;
     }
 
@@ -83,7 +83,7 @@ public class User {
     }
 
     // Methods for balance management
-    public void addBalance(double amount) {
+    public synchronized void addBalance(double amount) {
         if (amount > 0) {
             this.balance += amount;
             System.out.println(name + "'s balance updated. New balance: $" + String.format("%.2f", this.balance));
@@ -92,7 +92,7 @@ public class User {
         }
     }
 
-    public boolean deductBalance(double amount) {
+    public synchronized boolean deductBalance(double amount) {
         if (amount > 0 && this.balance >= amount) {
             this.balance -= amount;
             System.out.println(name + "'s balance updated. New balance: $" + String.format("%.2f", this.balance));
@@ -114,4 +114,4 @@ public class User {
         return "User ID: " + userId + ", Name: " + name + ", Role: " + role + ", Balance: $" + String.format("%.2f", balance) +
                 ", Rented Bike: " + (rentedBikeId != null ? rentedBikeId : "None");
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -3,12 +3,16 @@ package com.example.unibike_version_4.controller;
 import com.example.unibike_version_4.model.Bicycle;
 import com.example.unibike_version_4.model.Station;
 import com.example.unibike_version_4.model.User;
+import com.example.unibike_version_4.util.BackgroundIO;
+import com.example.unibike_version_4.util.DataRepository;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
@@ -37,6 +41,8 @@ public class AdminPanelController {
     @FXML private TextField stationCapacityField;
 
     @FXML private Label messageLabel;
+    @FXML private ProgressIndicator loadingIndicator;
+    @FXML private VBox controlPanel;
 
     // --- Data Lists ---
     private final ObservableList<Bicycle> bicycleList = FXCollections.observableArrayList();
@@ -45,11 +51,6 @@ public class AdminPanelController {
 
     @FXML
     public void initialize() {
-        // Load all data from files
-        User.loadFromFile();
-        Bicycle.loadFromFile();
-        Station.loadFromFile();
-
         // Setup Bicycle Table
         idColumn.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty(data.getValue().getId()));
         stationColumn.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty(data.getValue().getStationName()));
@@ -65,7 +66,17 @@ public class AdminPanelController {
 
         userTable.setItems(userList);
 
-        // Load initial data
+        // Data is shared across scenes; only the first view has to wait for it
+        if (DataRepository.isLoaded()) {
+            onDataLoaded();
+        } else {
+            Task<Void> loading = BackgroundIO.load(loadingIndicator, this::onDataLoaded, DataRepository::ensureLoaded);
+            controlPanel.disableProperty().bind(loading.runningProperty());
+        }
+    }
+
+    /** Runs on the FX thread once the data is in memory */
+    private void onDataLoaded() {
         loadUsers();
         loadBicycles();
         loadStations();
@@ -74,19 +85,19 @@ public class AdminPanelController {
     /** Load All Users */
     private void loadUsers() {
         userList.clear();
-        userList.addAll(User.getAllUsers());
+        userList.addAll(DataRepository.getUsers());
     }
 
     /** Load All Bicycles */
     private void loadBicycles() {
         bicycleList.clear();
-        bicycleList.addAll(Bicycle.getAllBicycles());
+        bicycleList.addAll(DataRepository.getBicycles());
     }
 
     /** Load All Stations */
     private void loadStations() {
         stationList.clear();
-        for (Station station : Station.getAllStations()) {
+        for (Station station : DataRepository.getStations()) {
             stationList.add(station.getName());
         }
         stationComboBox.setItems(stationList);
@@ -111,14 +122,11 @@ public class AdminPanelController {
             messageLabel.setText("Station name cannot be empty!");
             return;
         }
-        for(Station station: Station.getAllStations()){
-            if(station.getName().equalsIgnoreCase(name)){
-                messageLabel.setText("Station name already exists! Please choose a different name.");
-                return;
-            }
+        if (DataRepository.findStation(name) != null) {
+            messageLabel.setText("Station name already exists! Please choose a different name.");
+            return;
         }
-        new Station(name, capacity);
-        Station.saveToFile();
+        Station.saveChange(new Station(name, capacity));
 
         loadStations();
         messageLabel.setText("Station added: " + name);
@@ -136,15 +144,13 @@ public class AdminPanelController {
             messageLabel.setText("Please enter a bicycle ID and select a station.");
             return;
         }
-        for(Bicycle bike: Bicycle.getAllBicycles()){
-            if(bike.getId().equals(bikeId)){
-                messageLabel.setText("Bicycle ID already exists! Please choose a different ID.");
-                return;
-            }
+        if (DataRepository.findBicycle(bikeId) != null) {
+            messageLabel.setText("Bicycle ID already exists! Please choose a different ID.");
+            return;
         }
         boolean available = availableCheck.isSelected();
-        new Bicycle(bikeId, stationName, available);
-        Bicycle.saveAllBicycles();
+        Bicycle bike = new Bicycle(bikeId, stationName, available);
+        Bicycle.saveChange(bike);
 
         loadBicycles();
         messageLabel.setText("Bicycle added: " + bikeId);
@@ -159,7 +165,7 @@ public class AdminPanelController {
         Bicycle selected = bicycleTable.getSelectionModel().getSelectedItem();
         if (selected != null) {
             selected.setAvailable(true);
-            Bicycle.saveAllBicycles();
+            Bicycle.saveChange(selected);
             messageLabel.setText("Bicycle " + selected.getId() + " marked as available.");
             loadBicycles();
         }
@@ -171,7 +177,7 @@ public class AdminPanelController {
         Bicycle selected = bicycleTable.getSelectionModel().getSelectedItem();
         if (selected != null) {
             selected.setAvailable(false);
-            Bicycle.saveAllBicycles();
+            Bicycle.saveChange(selected);
             messageLabel.setText("Bicycle " + selected.getId() + " marked as unavailable.");
             loadBicycles();
         }
@@ -182,8 +188,7 @@ public class AdminPanelController {
     private void handleDeleteBicycle() {
         Bicycle selected = bicycleTable.getSelectionModel().getSelectedItem();
         if (selected != null) {
-            Bicycle.getAllBicycles().remove(selected);
-            Bicycle.saveAllBicycles();
+            Bicycle.removeBicycle(selected);
             loadBicycles();
             messageLabel.setText("Bicycle " + selected.getId() + " deleted.");
         } else {
@@ -1,7 +1,8 @@
 package com.example.unibike_version_4.controller;
-import com.example.unibike_version_4.model.User;
 import com.example.unibike_version_4.model.Bicycle;
-import com.example.unibike_version_4.model.Ride;
+import com.example.unibike_version_4.util.BackgroundIO;
+import com.example.unibike_version_4.util.DataBootstrap;
+import com.example.unibike_version_4.util.PersistenceCoordinator;
 
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -14,9 +15,13 @@ public class HelloApplication extends Application {
 
     @Override
     public void start(Stage stage) throws IOException {
-        User.loadFromFile(); // ✅ Load users on app start
-        Bicycle.loadFromFile(); // Load bicycles
-        Ride.loadFromFile();
+        // Coalesced writes run on the background I/O thread, in order with loads
+        PersistenceCoordinator.setDispatcher(BackgroundIO.executor());
+
+        // ✅ Load all data files once, without blocking the window
+        BackgroundIO.load(null,
+                () -> System.out.println("Data loaded in " + DataBootstrap.loadMillis() + " ms"),
+                DataBootstrap::ensureLoaded);
 
         primaryStage = stage;
         changeScene("login.fxml");
@@ -26,9 +31,10 @@ public class HelloApplication extends Application {
     @Override
     public void stop() throws Exception {
         super.stop();
-        User.saveAllUsers();
+        BackgroundIO.shutdown(5000); // Let queued loads and saves finish
+        PersistenceCoordinator.flushNow(); // Write everything still queued
         Bicycle.saveAllBicycles(); // Save bicycles
-        Ride.saveAllToFile();    // Save rides
+        // Rides are appended to the ride ledger as they happen
     }
     public static void changeScene(String fxmlFile) throws IOException {
         FXMLLoader loader = new FXMLLoader(HelloApplication.class.getResource("/com/example/unibike_version_4/" + fxmlFile));
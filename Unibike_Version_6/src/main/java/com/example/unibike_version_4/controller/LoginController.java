@@ -1,7 +1,10 @@
 package com.example.unibike_version_4.controller;
 
 import com.example.unibike_version_4.model.User;
+import com.example.unibike_version_4.util.BackgroundIO;
+import com.example.unibike_version_4.util.DataRepository;
 import com.example.unibike_version_4.util.SessionManager;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
@@ -13,12 +16,18 @@ public class LoginController {
     @FXML private PasswordField passwordField;
     @FXML private Label messageLabel;
     @FXML private ChoiceBox<String> roleChoiceBox;
+    @FXML private Button loginButton;
+    @FXML private ProgressIndicator loadingIndicator;
 
     @FXML
     public void initialize() {
-        // Load users from file so authentication works
-        User.loadFromFile();
-        System.out.println("Loaded users: " + User.getAllUsers().size());
+        // Data must be loaded so authentication works (login waits until done)
+        if (!DataRepository.isLoaded()) {
+            Task<Void> loading = BackgroundIO.load(loadingIndicator,
+                    () -> System.out.println("Loaded users: " + DataRepository.getUsers().size()),
+                    DataRepository::ensureLoaded);
+            loginButton.disableProperty().bind(loading.runningProperty());
+        }
 
         roleChoiceBox.getItems().addAll("User", "Admin");
         roleChoiceBox.setValue("User"); // Default role
@@ -44,9 +53,7 @@ public class LoginController {
 
                 SessionManager.setLoggedInUser(null); // Admin has no User object
 
-                // ✅ Load bicycles before showing Admin panel
-                com.example.unibike_version_4.model.Bicycle.loadFromFile();
-
+                // The admin panel loads its data in the background
                 HelloApplication.changeScene("admin-panel.fxml");
             } else {
                 messageLabel.setText("Invalid Admin credentials.");
@@ -63,9 +70,7 @@ public class LoginController {
 
             SessionManager.setLoggedInUser(loggedInUser);
 
-            // ✅ Load bicycles before showing User view
-            com.example.unibike_version_4.model.Bicycle.loadFromFile();
-
+            // The user view loads its data in the background
             HelloApplication.changeScene("user-view.fxml");
         } else {
             messageLabel.setText("Invalid username or password.");
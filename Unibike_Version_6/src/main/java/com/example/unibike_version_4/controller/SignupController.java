@@ -1,9 +1,13 @@
 package com.example.unibike_version_4.controller;
 
 import com.example.unibike_version_4.model.User;
+import com.example.unibike_version_4.util.BackgroundIO;
+import com.example.unibike_version_4.util.DataRepository;
 import com.example.unibike_version_4.util.FileManager;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 
 import java.io.IOException;
@@ -25,6 +29,12 @@ public class SignupController {
     @FXML
     private Label messageLabel;
 
+    @FXML
+    private ProgressIndicator savingIndicator;
+
+    @FXML
+    private VBox formContainer;
+
     @FXML
     private void handleSignup() {
         String username = usernameField.getText().trim();
@@ -43,27 +53,39 @@ public class SignupController {
             return;
         }
 
-        // Reload users from file to check for duplicates
-        User.loadFromFile();
-        if (User.getAllUsers().stream().anyMatch(u -> u.getUsername().equalsIgnoreCase(username))) {
-            showMessage("Username already taken.", Color.RED);
-            return;
-        }
-
-        // ---------- Create and Save User ----------
-        String userId = "U" + System.currentTimeMillis();
-        User newUser = new User(userId, username, email, password, 0.0, true);
-
-        // Save to file
-        User.saveUser(newUser);
-
-        showMessage("Signup successful! Please log in.", Color.GREEN);
+        // ---------- Load users (off the FX thread), then check and create on the FX thread ----------
+        Task<Void> load = BackgroundIO.submit(() -> {
+            // Users are kept in memory once loaded; no need to re-read the file
+            DataRepository.ensureLoaded();
+            return null;
+        }, savingIndicator, loaded -> {
+            // The user registries are only changed here, on the FX thread that reads them
+            if (DataRepository.isUsernameTaken(username)) {
+                showMessage("Username already taken.", Color.RED);
+                return;
+            }
+            String userId = "U" + System.currentTimeMillis();
+            User newUser = new User(userId, username, email, password, 0.0, true);
+            save(newUser);
+        });
+        formContainer.disableProperty().bind(load.runningProperty());
+    }
 
-        // Optional: Clear fields
-        usernameField.clear();
-        emailField.clear();
-        passwordField.clear();
-        confirmPasswordField.clear();
+    /** Write the new user to file (off the FX thread) */
+    private void save(User newUser) {
+        Task<Void> save = BackgroundIO.submit(() -> {
+            User.saveUser(newUser); // Save to file
+            return null;
+        }, savingIndicator, saved -> {
+            showMessage("Signup successful! Please log in.", Color.GREEN);
+
+            // Optional: Clear fields
+            usernameField.clear();
+            emailField.clear();
+            passwordField.clear();
+            confirmPasswordField.clear();
+        });
+        formContainer.disableProperty().bind(save.runningProperty());
     }
 
     @FXML
@@ -1,17 +1,25 @@
 package com.example.unibike_version_4.controller;
 
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import com.example.unibike_version_4.model.*;
+import com.example.unibike_version_4.util.ActiveRideIndex;
+import com.example.unibike_version_4.util.BackgroundIO;
+import com.example.unibike_version_4.util.DataRepository;
+import com.example.unibike_version_4.util.HistoryArchive;
+import com.example.unibike_version_4.util.PersistenceCoordinator;
 import com.example.unibike_version_4.util.SessionManager;
 
 import java.io.IOException;
-import java.util.Optional;
 
 public class UserController {
+    private static final int HISTORY_PAGE_SIZE = 20;
 
     // --- Available Bikes Table ---
     @FXML private TableView<Bicycle> availableBikesTable;
@@ -25,6 +33,9 @@ public class UserController {
 
     @FXML private Label messageLabel;
     @FXML private Label balanceLabel;
+    @FXML private ProgressIndicator loadingIndicator;
+    @FXML private VBox contentBox;
+    @FXML private HBox actionBox;
 
     // --- Station ComboBoxes ---
     @FXML private ComboBox<String> stationFilterComboBox;
@@ -35,12 +46,6 @@ public class UserController {
 
     @FXML
     public void initialize() {
-        // ✅ Always load data from file before setting up UI
-        Station.loadFromFile();
-        Bicycle.loadFromFile();
-        Ride.loadFromFile();
-        User.loadFromFile();
-
         // Table column bindings for available bikes
         bikeIdColumn.setCellValueFactory(cellData ->
                 new javafx.beans.property.SimpleStringProperty(cellData.getValue().getId()));
@@ -53,12 +58,23 @@ public class UserController {
         reservedStationColumn.setCellValueFactory(cellData ->
                 new javafx.beans.property.SimpleStringProperty(cellData.getValue().getStationName()));
 
-        populateStationComboBoxes();
-
         // Filter available bikes on station selection
         stationFilterComboBox.setOnAction(event -> refreshAvailableBikesByStation());
 
-        // Initial refresh
+        // ✅ Data is shared across scenes; only the first view has to wait for it
+        if (DataRepository.isLoaded()) {
+            onDataLoaded();
+        } else {
+            Task<Void> loading = BackgroundIO.load(loadingIndicator, this::onDataLoaded, DataRepository::ensureLoaded);
+            contentBox.disableProperty().bind(loading.runningProperty());
+            actionBox.disableProperty().bind(loading.runningProperty());
+        }
+        updateBalanceLabel();
+    }
+
+    /** Runs on the FX thread once the data files are loaded */
+    private void onDataLoaded() {
+        populateStationComboBoxes();
         refreshAvailableBikesByStation();
         refreshReservedBikes();
         updateBalanceLabel();
@@ -67,7 +83,7 @@ public class UserController {
     /** Populate both ComboBoxes with station names **/
     private void populateStationComboBoxes() {
         ObservableList<String> stationNames = FXCollections.observableArrayList();
-        for (Station station : Station.getAllStations()) {
+        for (Station station : DataRepository.getStations()) {
             stationNames.add(station.getName());
         }
 
@@ -87,10 +103,9 @@ public class UserController {
 
         if (selectedStation == null) return;
 
-        for (Bicycle bike : Bicycle.getAllBicycles()) {
-            if (bike.isAvailable() && selectedStation.equals(bike.getStationName())) {
-                availableBikes.add(bike);
-            }
+        Station station = DataRepository.findStation(selectedStation);
+        if (station != null) {
+            availableBikes.addAll(station.getAvailableBicycles());
         }
         availableBikesTable.setItems(availableBikes);
     }
@@ -101,15 +116,11 @@ public class UserController {
         User currentUser = SessionManager.getLoggedInUser();
         if (currentUser == null) return;
 
-        for (Bicycle bike : Bicycle.getAllBicycles()) {
-            if (bike.getStatus() == BicycleStatus.RESERVED) {
-                boolean isReservedByUser = Ride.getAllRides().stream()
-                        .anyMatch(r -> r.getUser().equals(currentUser) &&
-                                r.getBicycle().equals(bike) &&
-                                r.getEndTime() == null);
-                if (isReservedByUser) {
-                    reservedBikes.add(bike);
-                }
+        // Only this user's open rides, not every bike x every ride
+        for (Ride ride : ActiveRideIndex.getOpenRides(currentUser.getId())) {
+            Bicycle bike = ride.getBicycle();
+            if (bike.getStatus() == BicycleStatus.RESERVED && !reservedBikes.contains(bike)) {
+                reservedBikes.add(bike);
             }
         }
         reservedBikesTable.setItems(reservedBikes);
@@ -131,14 +142,16 @@ public class UserController {
             return;
         }
 
-        selectedBike.setAvailable(false);
-        selectedBike.setStatus(BicycleStatus.RESERVED);
-        Bicycle.saveAllBicycles();
+        // Atomic claim: another session may have taken this bike since the table was filled
+        if (!selectedBike.tryClaim(currentUser.getId())) {
+            messageLabel.setText("Sorry, bike " + selectedBike.getId() + " was just taken.");
+            refreshAvailableBikesByStation();
+            return;
+        }
+        Bicycle.saveChange(selectedBike);
 
         new Ride(currentUser, selectedBike);
-        Ride.saveAllToFile();  // Save new ride to persist reservation
         currentUser.addHistoryEntry("Reserved Bike", "Bike ID: " + selectedBike.getId());
-        User.saveAllUsers();
 
         messageLabel.setText("Bike reserved successfully: " + selectedBike.getId());
         refreshAvailableBikesByStation();
@@ -162,23 +175,14 @@ public class UserController {
             return;
         }
 
-        Optional<Ride> rideOpt = Ride.getAllRides().stream()
-                .filter(r -> r.getUser().equals(currentUser) &&
-                        r.getBicycle().equals(selectedBike) &&
-                        r.getEndTime() == null)
-                .findFirst();
+        Ride ride = ActiveRideIndex.findOpenRide(currentUser.getId(), selectedBike.getId());
 
-        if (rideOpt.isEmpty()) {
+        if (ride == null) {
             messageLabel.setText("No active ride found for this bike.");
             return;
         }
 
-        Ride ride = rideOpt.get();
-        ride.endRide();
-        Ride.saveAllToFile();  // Save ride changes after return
-
-        selectedBike.setStatus(BicycleStatus.AVAILABLE);
-        selectedBike.setAvailable(true);
+        ride.endRide(); // releases the bike
 
         // Set return station
         String selectedReturnStation = returnStationComboBox.getSelectionModel().getSelectedItem();
@@ -187,11 +191,10 @@ public class UserController {
             stationFilterComboBox.getSelectionModel().select(selectedReturnStation);
         }
 
-        Bicycle.saveAllBicycles();
+        Bicycle.saveChange(selectedBike);
 
         currentUser.addHistoryEntry("Returned Bike", "Bike ID: " + selectedBike.getId() +
                 " | Fare: " + ride.getCost() + " units");
-        User.saveAllUsers();
 
         messageLabel.setText("Bike returned to " + selectedReturnStation + ". Fare: " + ride.getCost() + " units");
         refreshAvailableBikesByStation();
@@ -199,22 +202,35 @@ public class UserController {
         updateBalanceLabel();
     }
 
-    /** View user's ride history **/
+    /** View user's ride history, newest page first **/
     @FXML
     private void handleViewHistory() {
         User currentUser = SessionManager.getLoggedInUser();
         if (currentUser == null) return;
+        showHistoryPage(currentUser, null);
+    }
 
-        StringBuilder historyText = new StringBuilder("Your Ride History:\n");
-        for (String entry : currentUser.getHistory()) {
-            historyText.append("- ").append(entry).append("\n");
-        }
+    /** Load one page off the FX thread (older pages come from the compressed archive) */
+    private void showHistoryPage(User user, HistoryArchive.Cursor before) {
+        BackgroundIO.submit(() -> user.getHistoryPage(before, HISTORY_PAGE_SIZE), loadingIndicator, page -> {
+            StringBuilder historyText = new StringBuilder("Your Ride History:\n");
+            for (String entry : page.entries()) {
+                historyText.append("- ").append(entry).append("\n");
+            }
 
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Ride History");
-        alert.setHeaderText("Your Ride History");
-        alert.setContentText(historyText.toString());
-        alert.showAndWait();
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Ride History");
+            alert.setHeaderText("Your Ride History");
+            alert.setContentText(historyText.toString());
+
+            ButtonType older = new ButtonType("Older", ButtonBar.ButtonData.BACK_PREVIOUS);
+            if (page.older() != null) {
+                alert.getButtonTypes().setAll(older, ButtonType.CLOSE);
+            }
+            alert.showAndWait()
+                    .filter(button -> button == older)
+                    .ifPresent(button -> showHistoryPage(user, page.older()));
+        });
     }
 
     /** View balance popup **/
@@ -246,7 +262,7 @@ public class UserController {
                 double amount = Double.parseDouble(amountStr);
                 if (amount <= 0) throw new NumberFormatException();
 
-                currentUser.deductBalance(-amount);
+                currentUser.addBalance(amount);
                 messageLabel.setText("Balance updated successfully!");
                 updateBalanceLabel();
             } catch (NumberFormatException e) {
@@ -258,9 +274,7 @@ public class UserController {
     /** Logout **/
     @FXML
     private void handleLogout() throws IOException {
-        Bicycle.saveAllBicycles();
-        Ride.saveAllToFile();
-        User.saveAllUsers();
+        BackgroundIO.executor().execute(PersistenceCoordinator::flushNow); // write queued changes off the FX thread
         SessionManager.setLoggedInUser(null);
         HelloApplication.changeScene("login.fxml");
     }
@@ -38,11 +38,7 @@ public class Admin {
     // ---------------- Station Management ----------------
     /** Add new station and save to file */
     public Station addStation(String name, int capacity) {
-        Station station = Station.addStation(name, capacity);
-        if (station != null) {
-            Station.saveToFile();
-        }
-        return station;
+        return Station.addStation(name, capacity);
     }
 
     // ---------------- Bicycle Management ----------------
@@ -52,7 +48,6 @@ public class Admin {
         if (station != null && bicycle != null) {
             station.removeBicycle(bicycle);
             Bicycle.removeBicycle(bicycle);
-            Station.saveToFile();
         }
     }
 
@@ -66,8 +61,6 @@ public class Admin {
     public void disableUser(User user) {
         if (user != null) {
             user.setActive(false);
-            User.saveAllUsers();
-
         }
     }
 
@@ -75,8 +68,6 @@ public class Admin {
     public void resetUserPassword(User user, String newPassword) {
         if (user != null) {
             user.setPassword(newPassword);
-            User.saveAllUsers();
-
         }
     }
 
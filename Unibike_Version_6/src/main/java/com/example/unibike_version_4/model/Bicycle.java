@@ -1,34 +1,82 @@
 package com.example.unibike_version_4.model;
 
-import java.io.*;
-import java.nio.file.Files;
+import com.example.unibike_version_4.util.CodecRepository;
+import com.example.unibike_version_4.util.CsvTokenizer;
+import com.example.unibike_version_4.util.FileStamp;
+import com.example.unibike_version_4.util.FleetSnapshot;
+import com.example.unibike_version_4.util.PersistenceCoordinator;
+import com.example.unibike_version_4.util.RecordJournal;
+import com.example.unibike_version_4.util.Repository;
+
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Bicycle {
     private String id;
     private String stationName;
-    private boolean available;
-    private BicycleStatus status = BicycleStatus.AVAILABLE;
+    // Status and holder change together by compare-and-set, so two sessions can never claim the same bike
+    private final AtomicReference<Claim> state = new AtomicReference<>(Claim.of(BicycleStatus.AVAILABLE));
+    private volatile Station station; // the station this bike is docked at (null if none)
 
     private static final List<Bicycle> allBicycles = new ArrayList<>();
+    private static final Map<String, Bicycle> bicyclesById = new HashMap<>();
     private static final Path FILE_PATH = Paths.get(
             "src/main/resources/com/example/unibike_version_4/data/bicycle.txt"
     );
+    private static final RecordJournal JOURNAL = new RecordJournal(FILE_PATH);
+    private static final CodecRepository<String, Bicycle> BICYCLES = new CodecRepository<>(JOURNAL, new Repository.Codec<>() {
+        @Override
+        public String keyOf(Bicycle bike) {
+            return bike.id;
+        }
+
+        @Override
+        public String encode(Bicycle bike) {
+            return bike.toRecord();
+        }
+
+        @Override
+        public Bicycle decode(String record) {
+            return parseBicycle(record);
+        }
+    });
+    private static final String JOURNAL_KEY = "bicycle.journal";
+    private static final BicycleStatus[] STATUSES = BicycleStatus.values();
+    // Records may be decoded on any thread, each reusing its own tokenizer
+    private static final ThreadLocal<CsvTokenizer> TOKENIZER = ThreadLocal.withInitial(CsvTokenizer::new);
+
+    // Changes waiting for the next flush: id -> bicycle (null = removed)
+    private static final Map<String, Bicycle> pendingChanges = new LinkedHashMap<>();
 
     // ---------------- Constructor ----------------
     public Bicycle(String id, String stationName, boolean available) {
+        this(id, stationName, Station.findByName(stationName),
+                available ? BicycleStatus.AVAILABLE : BicycleStatus.RESERVED);
+    }
+
+    private Bicycle(String id, String stationName, Station station, BicycleStatus status) {
+        this(id, stationName, status);
+        register(station);
+    }
+
+    // Decoded from a record: not in the fleet until registered
+    private Bicycle(String id, String stationName, BicycleStatus status) {
         this.id = id;
         this.stationName = stationName;
-        this.available = available;
-        this.status = available ? BicycleStatus.AVAILABLE : BicycleStatus.RESERVED;
+        this.state.set(Claim.of(status));
+    }
 
+    private void register(Station station) {
         allBicycles.add(this);
+        bicyclesById.putIfAbsent(id, this);
 
         // Auto-link to station if exists
-        Station station = Station.findByName(stationName);
         if (station != null) {
             station.addBicycle(this);
         }
@@ -41,26 +89,97 @@ public class Bicycle {
     public String getStationName() {
         return stationName; }
     public boolean isAvailable() {
-        return available; }
+        return state.get().status() == BicycleStatus.AVAILABLE; }
 
     public BicycleStatus getStatus() {
-        return status; }
+        return state.get().status(); }
+
+    public String getClaimedBy() {
+        return state.get().holder(); }
+
+    public boolean isClaimedBy(String userId) {
+        Claim current = state.get();
+        return userId != null && userId.equals(current.holder()) && current.status() == BicycleStatus.RESERVED;
+    }
+
+    public Station getStation() {
+        return station; }
+
+    // Only Station links and unlinks bikes, so its counters stay correct
+    void setStation(Station station) {
+        this.station = station;
+    }
 
     public void setAvailable(boolean available) {
-        this.available = available;
-        this.status = available ? BicycleStatus.AVAILABLE : BicycleStatus.UNAVAILABLE;
+        setStatus(available ? BicycleStatus.AVAILABLE : BicycleStatus.UNAVAILABLE);
     }
 
+    /** Unconditional status change (admin edits, loading); user flows use tryClaim/release */
     public void setStatus(BicycleStatus status) {
-        this.status = status;
-        this.available = (status == BicycleStatus.AVAILABLE);
+        Claim old = state.getAndUpdate(current -> current.moveTo(status));
+        notifyStation(old.status(), status);
+    }
+
+    // ---------------- Atomic Transitions ----------------
+    /** ✅ Claim the bike for a user (AVAILABLE -> RESERVED); false if someone else got it first */
+    public boolean tryClaim(String userId) {
+        Claim current;
+        do {
+            current = state.get();
+            if (current.status() != BicycleStatus.AVAILABLE) return false;
+        } while (!state.compareAndSet(current, new Claim(BicycleStatus.RESERVED, userId)));
+        notifyStation(BicycleStatus.AVAILABLE, BicycleStatus.RESERVED);
+        return true;
+    }
+
+    /** ✅ Give a claimed bike back (RESERVED -> AVAILABLE); false if it was not claimed */
+    public boolean release() {
+        return compareAndSetStatus(BicycleStatus.RESERVED, BicycleStatus.AVAILABLE);
+    }
+
+    /** ✅ Change the status only if it is still the expected one */
+    public boolean compareAndSetStatus(BicycleStatus expected, BicycleStatus newStatus) {
+        Claim current;
+        do {
+            current = state.get();
+            if (current.status() != expected) return false;
+        } while (!state.compareAndSet(current, current.moveTo(newStatus)));
+        notifyStation(expected, newStatus);
+        return true;
+    }
+
+    /** Status plus the user holding the bike; replaced as a whole so the two never disagree */
+    private record Claim(BicycleStatus status, String holder) {
+        private static final Claim[] UNCLAIMED = new Claim[BicycleStatus.values().length];
+
+        static {
+            for (BicycleStatus status : BicycleStatus.values()) {
+                UNCLAIMED[status.ordinal()] = new Claim(status, null);
+            }
+        }
+
+        static Claim of(BicycleStatus status) {
+            return UNCLAIMED[status.ordinal()];
+        }
+
+        /** The state after a status change; only a RESERVED bike keeps its holder */
+        Claim moveTo(BicycleStatus newStatus) {
+            return newStatus == BicycleStatus.RESERVED ? new Claim(newStatus, holder) : of(newStatus);
+        }
+    }
+
+    private void notifyStation(BicycleStatus oldStatus, BicycleStatus newStatus) {
+        Station current = station;
+        if (current != null && oldStatus != newStatus) {
+            current.statusChanged(this, oldStatus, newStatus);
+        }
     }
 
     public void setStationName(String stationName) {
         this.stationName = stationName;
-        Station station = Station.findByName(stationName);
-        if (station != null && !station.getBicycles().contains(this)) {
-            station.addBicycle(this);
+        Station newStation = Station.findByName(stationName);
+        if (newStation != null) {
+            newStation.addBicycle(this); // moves it out of the old station
         }
     }
 
@@ -69,74 +188,144 @@ public class Bicycle {
         return allBicycles;
     }
 
+    /** ✅ Find a bicycle by ID (O(1)) */
+    public static Bicycle findById(String id) {
+        return id == null ? null : bicyclesById.get(id);
+    }
+
     /** ✅ Add bicycle with auto-save */
     public static Bicycle addBicycle(String id, String stationName, boolean available) {
-        if (allBicycles.stream().anyMatch(b -> b.getId().equals(id))) {
+        if (findById(id) != null) {
             return null; // ID already exists
         }
         Bicycle bike = new Bicycle(id, stationName, available);
-        saveAllBicycles();
+        saveChange(bike);
         return bike;
     }
 
     /** ✅ Remove bicycle with auto-save */
     public static void removeBicycle(Bicycle bike) {
         allBicycles.remove(bike);
+        bicyclesById.remove(bike.getId(), bike);
 
-        Station station = Station.findByName(bike.getStationName());
-        if (station != null) {
-            station.removeBicycle(bike);
+        if (bike.station != null) {
+            bike.station.removeBicycle(bike);
         }
 
-        saveAllBicycles();
+        synchronized (pendingChanges) {
+            pendingChanges.put(bike.getId(), null);
+        }
+        PersistenceCoordinator.markDirty(JOURNAL_KEY, Bicycle::flushChanges);
     }
 
     // ---------------- File Persistence ----------------
-    /** ✅ Save all bicycles to file */
-    public static void saveAllBicycles() {
-        try {
-            Files.createDirectories(FILE_PATH.getParent());
-            try (BufferedWriter writer = Files.newBufferedWriter(FILE_PATH)) {
-                for (Bicycle bike : allBicycles) {
-                    writer.write(
-                            bike.id + "," + bike.stationName + "," + bike.available + "," +
-                                    bike.status);
-                    writer.newLine();
+    /** ✅ Queue one bicycle's current state for the journal (written once per flush window) */
+    public static void saveChange(Bicycle bike) {
+        synchronized (pendingChanges) {
+            pendingChanges.put(bike.getId(), bike);
+        }
+        PersistenceCoordinator.markDirty(JOURNAL_KEY, Bicycle::flushChanges);
+    }
+
+    /** Append every queued change to the journal in one write */
+    private static void flushChanges() {
+        Map<String, Bicycle> changed = new LinkedHashMap<>();
+        List<String> removedIds = new ArrayList<>();
+        synchronized (pendingChanges) {
+            for (Map.Entry<String, Bicycle> entry : pendingChanges.entrySet()) {
+                if (entry.getValue() == null) {
+                    removedIds.add(entry.getKey());
+                } else {
+                    changed.put(entry.getKey(), entry.getValue());
                 }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            pendingChanges.clear();
         }
+        BICYCLES.update(changed, removedIds);
     }
 
-    /** ✅ Load bicycles from file */
+    /** ✅ Save all bicycles to file (full snapshot, clears the journal) */
+    public static void saveAllBicycles() {
+        BICYCLES.rewriteAll(allBicycles);
+
+        // Refresh the binary copy so the next start can skip parsing
+        FleetSnapshot.write(FleetSnapshot.FILE_PATH, Station.sourceStamp(), sourceStamp(),
+                Station.getAllStations(), allBicycles);
+    }
+
+    private String toRecord() {
+        BicycleStatus current = getStatus();
+        return id + "," + stationName + "," + (current == BicycleStatus.AVAILABLE) + "," + current;
+    }
+
+    /** ✅ Load bicycles from the binary fleet snapshot if it is current, else from file (snapshot + journal replay) */
     public static void loadFromFile() {
+        FleetSnapshot fleet = FleetSnapshot.open(FleetSnapshot.FILE_PATH);
+        if (fleet != null && fleet.bicycleStamp() == sourceStamp()) {
+            loadSnapshot(fleet);
+        } else {
+            loadRecords(readRecords());
+        }
+    }
+
+    /** Stamp of the bicycle files as they are now, queued changes included */
+    public static long sourceStamp() {
+        PersistenceCoordinator.flush(JOURNAL_KEY);
+        return FileStamp.of(JOURNAL.files());
+    }
+
+    /** Current bicycle records from snapshot + journal (safe to call from any thread) */
+    public static List<String> readRecords() {
+        PersistenceCoordinator.flush(JOURNAL_KEY); // don't lose queued changes
+        return JOURNAL.replay();
+    }
+
+    /** Rebuild all bicycles from a mapped fleet snapshot (stations must be loaded first) */
+    public static void loadSnapshot(FleetSnapshot fleet) {
         allBicycles.clear();
-        if (!Files.exists(FILE_PATH)) return;
-
-        try (BufferedReader reader = Files.newBufferedReader(FILE_PATH)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    String id = parts[0];
-                    String station = parts[1];
-                    boolean available = Boolean.parseBoolean(parts[2]);
-
-                    Bicycle bike = new Bicycle(id, station, available);
-
-                    // If file contains status (4th column)
-                    if (parts.length >= 4) {
-                        try {
-                            bike.setStatus(BicycleStatus.valueOf(parts[3]));
-                        } catch (IllegalArgumentException e) {
-                            bike.setStatus(available ? BicycleStatus.AVAILABLE : BicycleStatus.RESERVED);
-                        }
-                    }
-                }
+        bicyclesById.clear();
+
+        // Names are interned, so each station is looked up once rather than once per bike
+        Station[] stations = new Station[fleet.nameCount()];
+        boolean[] resolved = new boolean[stations.length];
+
+        for (int i = 0; i < fleet.bicycleCount(); i++) {
+            int ordinal = fleet.bicycleStationOrdinal(i);
+            if (!resolved[ordinal]) {
+                stations[ordinal] = Station.findByName(fleet.name(ordinal));
+                resolved[ordinal] = true;
+            }
+            new Bicycle(fleet.bicycleId(i), fleet.name(ordinal), stations[ordinal], fleet.bicycleStatus(i));
+        }
+    }
+
+    /** Rebuild all bicycles from already-read records (stations must be loaded first) */
+    public static void loadRecords(List<String> lines) {
+        allBicycles.clear();
+        bicyclesById.clear();
+
+        for (String line : lines) {
+            Bicycle bike = parseBicycle(line);
+            if (bike != null) {
+                bike.register(Station.findByName(bike.stationName));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
+
+    private static Bicycle parseBicycle(String line) {
+        CsvTokenizer row = TOKENIZER.get().reset(line);
+        if (row.fieldCount() < 3) return null;
+
+        String id = row.nextString();
+        String station = row.nextString();
+        boolean available = row.nextBoolean();
+        BicycleStatus status = available ? BicycleStatus.AVAILABLE : BicycleStatus.RESERVED;
+
+        // If file contains status (4th column)
+        if (row.fieldCount() >= 4) {
+            BicycleStatus stored = row.nextEnum(STATUSES);
+            if (stored != null) status = stored;
+        }
+        return new Bicycle(id, station, status);
+    }
 }
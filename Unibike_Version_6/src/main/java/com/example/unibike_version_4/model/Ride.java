@@ -1,13 +1,24 @@
 package com.example.unibike_version_4.model;
 
-import java.io.*;
+import com.example.unibike_version_4.util.ActiveRideIndex;
+import com.example.unibike_version_4.util.CodecRepository;
+import com.example.unibike_version_4.util.CsvTokenizer;
+import com.example.unibike_version_4.util.LsmRepository;
+import com.example.unibike_version_4.util.PersistenceCoordinator;
+import com.example.unibike_version_4.util.Repository;
+import com.example.unibike_version_4.util.RideLedger;
+
 import java.nio.file.*;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public class Ride {
     private String id;
@@ -19,7 +30,31 @@ public class Ride {
 
     private static final List<Ride> allRides = new ArrayList<>();
     private static final Path FILE_PATH = Paths.get("src/main/resources/com/example/unibike_version_4/data/reservation.txt");
+    // Ride records as stored; read raw at startup, before users and bicycles exist to decode them
+    private static final Repository<String, String> RIDE_RECORDS = openStore();
+    private static final CodecRepository<String, Ride> RIDES = new CodecRepository<>(RIDE_RECORDS, new Repository.Codec<>() {
+        @Override
+        public String keyOf(Ride ride) {
+            return ride.id;
+        }
+
+        @Override
+        public String encode(Ride ride) {
+            return ride.toRecord();
+        }
+
+        @Override
+        public Ride decode(String record) {
+            return parseRide(record);
+        }
+    });
+    private static final String LEDGER_KEY = "ride.ledger";
+
+    // Rides changed since the last flush, stored in their state at flush time
+    private static final List<Ride> pendingRides = new ArrayList<>();
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Records are parsed on parallel threads, each reusing its own tokenizer
+    private static final ThreadLocal<CsvTokenizer> TOKENIZER = ThreadLocal.withInitial(CsvTokenizer::new);
 
     // Main constructor for new rides
     public Ride(User user, Bicycle bicycle) {
@@ -29,13 +64,17 @@ public class Ride {
         this.bicycle = bicycle;
         this.endTime = null; // ongoing ride
 
-        // Mark bike as in-use/reserved
-        bicycle.setAvailable(false);
-        bicycle.setStatus(BicycleStatus.RESERVED);
-        Bicycle.saveAllBicycles();
+        // Claim the bike unless the caller already did
+        if (!bicycle.isClaimedBy(user.getId()) && !bicycle.tryClaim(user.getId())) {
+            throw new IllegalStateException("Bike " + bicycle.getId() + " is not available");
+        }
+        Bicycle.saveChange(bicycle);
 
-        allRides.add(this);
-        saveAllToFile();
+        synchronized (allRides) { // rides start on request threads in the HTTP server
+            allRides.add(this);
+        }
+        ActiveRideIndex.rideStarted(this);
+        queueRecord();
     }
 
     // Private constructor for loading from file (no status change/save call here)
@@ -52,19 +91,19 @@ public class Ride {
     public void endRide() {
         this.endTime = LocalDateTime.now();
         calculateCost();
+        ActiveRideIndex.rideEnded(this);
 
         // Deduct cost from user
         user.deductBalance(cost);
 
         // Mark bike as available again
-        bicycle.setAvailable(true);
-        bicycle.setStatus(BicycleStatus.AVAILABLE);
-        Bicycle.saveAllBicycles();
+        bicycle.release();
+        Bicycle.saveChange(bicycle);
 
         // Add to user's ride history
         user.addHistoryEntry("Returned Bike", "Bike ID: " + bicycle.getId() + ", Cost: " + cost);
 
-        saveAllToFile();
+        queueRecord();
     }
 
     /** Calculate cost based on ride duration */
@@ -96,71 +135,133 @@ public class Ride {
     }
 
     // ---------------- File Persistence ----------------
+    private String toRecord() {
+        return id + "," +
+                user.getId() + "," +
+                bicycle.getId() + "," +
+                getStartTimeFormatted() + "," +
+                getEndTimeFormatted() + "," +
+                cost;
+    }
+
+    /** Queue this ride for the ledger (written once per flush window) */
+    private void queueRecord() {
+        synchronized (pendingRides) {
+            pendingRides.add(this);
+        }
+        PersistenceCoordinator.markDirty(LEDGER_KEY, Ride::flushRecords);
+    }
+
+    /** Store every queued ride in one write */
+    private static void flushRecords() {
+        List<Ride> rides;
+        synchronized (pendingRides) {
+            rides = new ArrayList<>(pendingRides);
+            pendingRides.clear();
+        }
+        RIDES.saveAll(rides);
+    }
+
+    /** Rewrite the whole store in one go (rides are otherwise stored as they change) */
     public static void saveAllToFile() {
-        try {
-            Files.createDirectories(FILE_PATH.getParent());
-            try (BufferedWriter writer = Files.newBufferedWriter(FILE_PATH, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                for (Ride ride : allRides) {
-                    writer.write(
-                            ride.id + "," +
-                                    ride.user.getId() + "," +
-                                    ride.bicycle.getId() + "," +
-                                    ride.getStartTimeFormatted() + "," +
-                                    ride.getEndTimeFormatted() + "," +
-                                    ride.cost
-                    );
-                    writer.newLine();
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        PersistenceCoordinator.flush(LEDGER_KEY);
+        List<Ride> rides;
+        synchronized (allRides) {
+            rides = new ArrayList<>(allRides);
         }
+        RIDES.rewriteAll(rides);
+    }
+
+    /**
+     * Ride as last stored, read back as a new Ride that is not in getAllRides(),
+     * or null (an indexed lookup on the LSM store)
+     */
+    public static Ride findStored(String id) {
+        PersistenceCoordinator.flush(LEDGER_KEY);
+        return RIDES.get(id);
     }
 
+    /**
+     * The ride store picked with -Dunibike.store. The LSM store is filled
+     * from the CSV ledger the first time it is used.
+     */
+    private static Repository<String, String> openStore() {
+        RideLedger ledger = new RideLedger(FILE_PATH);
+        if (Repository.Backend.current() != Repository.Backend.LSM) return ledger;
+
+        LsmRepository store = new LsmRepository(FILE_PATH.resolveSibling("rides.lsm"));
+        if (store.isEmpty()) {
+            List<String> records = ledger.replay();
+            if (!records.isEmpty()) store.rewrite(byId(records));
+        }
+        return store;
+    }
+
+    /** Raw records keyed by ride id; the last record of a ride wins */
+    private static Map<String, String> byId(List<String> records) {
+        Map<String, String> byId = new LinkedHashMap<>();
+        for (String record : records) {
+            int comma = record.indexOf(',');
+            byId.put(comma < 0 ? record : record.substring(0, comma), record);
+        }
+        return byId;
+    }
+
+    /** Load rides from the ride store */
     public static void loadFromFile() {
+        loadRecords(readRecords());
+    }
+
+    /** Latest record of every ride (safe to call from any thread) */
+    public static List<String> readRecords() {
+        PersistenceCoordinator.flush(LEDGER_KEY); // don't lose queued rides
+        return RIDE_RECORDS.values();
+    }
+
+    /** Rebuild all rides from already-read records (users and bicycles must be loaded first) */
+    public static void loadRecords(List<String> lines) {
         allRides.clear();
-        if (!Files.exists(FILE_PATH)) return;
-
-        try (BufferedReader reader = Files.newBufferedReader(FILE_PATH)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 6) {
-                    Ride ride = parseRide(parts);
-                    if (ride != null) allRides.add(ride);
-                }
+        ActiveRideIndex.clear();
+
+        // Parsing only reads the user and bicycle indexes, so it can run in parallel
+        List<Ride> rides = lines.parallelStream()
+                .map(Ride::parseRide)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        // Free every ridden bike first, then claim the ones still out (the store's order does not matter)
+        for (Ride ride : rides) {
+            allRides.add(ride);
+            ride.bicycle.setStatus(BicycleStatus.AVAILABLE);
+        }
+        for (Ride ride : rides) {
+            if (ride.endTime == null) {
+                ride.bicycle.tryClaim(ride.user.getId()); // the ride still holds the bike
+                ActiveRideIndex.rideStarted(ride);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 
-    private static Ride parseRide(String[] parts) {
+    private static Ride parseRide(String line) {
+        CsvTokenizer row = TOKENIZER.get().reset(line);
+        if (row.fieldCount() != 6) return null;
         try {
-            String id = parts[0];
-            User user = User.findById(parts[1]);
-            Bicycle bike = Bicycle.getAllBicycles().stream()
-                    .filter(b -> b.getId().equals(parts[2]))
-                    .findFirst().orElse(null);
-
-            LocalDateTime start = LocalDateTime.parse(parts[3], FORMATTER);
-            LocalDateTime end = parts[4].equals("In Progress") ? null : LocalDateTime.parse(parts[4], FORMATTER);
-            double cost = Double.parseDouble(parts[5]);
+            String id = row.nextString();
+            User user = User.findById(row.nextString());
+            Bicycle bike = Bicycle.findById(row.nextString());
 
-            if (user == null || bike == null) return null;
-
-            Ride ride = new Ride(id, user, bike, start, end, cost); // use private constructor
-
-            // Restore status for ongoing rides
-            if (end == null) {
-                bike.setAvailable(false);
-                bike.setStatus(BicycleStatus.RESERVED);
+            LocalDateTime start = row.nextTimestamp();
+            LocalDateTime end = null;
+            if (row.nextEquals("In Progress")) {
+                row.skip();
             } else {
-                bike.setAvailable(true);
-                bike.setStatus(BicycleStatus.AVAILABLE);
+                end = row.nextTimestamp();
             }
+            double cost = row.nextDouble();
+
+            if (user == null || bike == null) return null;
 
-            return ride;
+            return new Ride(id, user, bike, start, end, cost); // use private constructor
         } catch (Exception e) {
             return null;
         }
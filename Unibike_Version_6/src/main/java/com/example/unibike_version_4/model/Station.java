@@ -1,9 +1,17 @@
 package com.example.unibike_version_4.model;
 
-import java.io.*;
+import com.example.unibike_version_4.util.CodecRepository;
+import com.example.unibike_version_4.util.CsvTokenizer;
+import com.example.unibike_version_4.util.FileStamp;
+import com.example.unibike_version_4.util.FleetSnapshot;
+import com.example.unibike_version_4.util.PersistenceCoordinator;
+import com.example.unibike_version_4.util.RecordJournal;
+import com.example.unibike_version_4.util.Repository;
+
 import java.nio.file.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Station {
     private String name;
@@ -11,8 +19,42 @@ public class Station {
     private String location; // Optional for admin use
     private final List<Bicycle> bicycles = new ArrayList<>();
 
-    private static final List<Station> allStations = new ArrayList<>();
+    // Live counters, updated by addBicycle/removeBicycle and Bicycle status changes
+    private final Set<Bicycle> availableBicycles = new LinkedHashSet<>();
+    private final int[] statusCounts = new int[BicycleStatus.values().length];
+
+    // Copy-on-write: saved from the background I/O thread while the UI may add stations
+    private static final List<Station> allStations = new CopyOnWriteArrayList<>();
+    // Lower-cased name -> station, kept in sync with allStations (filled off the FX thread at startup)
+    private static final Map<String, Station> stationsByName = new ConcurrentHashMap<>();
+    // Held while a bike is docked or undocked, so moving between two stations locks them in one order only
+    private static final Object DOCKING = new Object();
     private static final Path FILE_PATH = Paths.get("src/main/resources/com/example/unibike_version_4/data/station.txt");
+    // station.txt is the snapshot; added and removed stations go to its journal
+    private static final RecordJournal JOURNAL = new RecordJournal(FILE_PATH);
+    private static final CodecRepository<String, Station> STATIONS = new CodecRepository<>(JOURNAL, new Repository.Codec<>() {
+        @Override
+        public String keyOf(Station station) {
+            return station.name;
+        }
+
+        @Override
+        public String encode(Station station) {
+            return station.toRecord();
+        }
+
+        @Override
+        public Station decode(String record) {
+            return parseStation(record);
+        }
+    });
+    private static final String STATION_KEY = "station.txt";
+    private static final String CHANGES_KEY = "station.journal";
+    // Records may be decoded on any thread, each reusing its own tokenizer
+    private static final ThreadLocal<CsvTokenizer> TOKENIZER = ThreadLocal.withInitial(CsvTokenizer::new);
+
+    // Changes waiting for the next flush: name -> station (null = removed)
+    private static final Map<String, Station> pendingChanges = new LinkedHashMap<>();
 
     // ---------------- Constructor ----------------
     public Station(String name, int capacity) {
@@ -20,10 +62,20 @@ public class Station {
     }
 
     public Station(String name, int capacity, String location) {
+        this(name, capacity, location, true);
+    }
+
+    // listed = false: decoded from a record, not in the station list until registered
+    private Station(String name, int capacity, String location, boolean listed) {
         this.name = name;
         this.capacity = capacity;
         this.location = location;
+        if (listed) register();
+    }
+
+    private void register() {
         allStations.add(this);
+        stationsByName.putIfAbsent(keyOf(name), this);
     }
 
     // ---------------- Getters and Setters ----------------
@@ -31,28 +83,67 @@ public class Station {
     public int getCapacity() { return capacity; }
     public String getLocation() { return location; }
 
-    public void setName(String name) { this.name = name; }
+    /** The record is keyed by name, so store a rename with markDirty() (a full rewrite) */
+    public void setName(String name) {
+        unindex(this);
+        this.name = name;
+        stationsByName.putIfAbsent(keyOf(name), this);
+    }
     public void setCapacity(int capacity) { this.capacity = capacity; }
     public void setLocation(String location) { this.location = location; }
 
-    public List<Bicycle> getBicycles() { return bicycles; }
+    /** Copy of the docked bikes; dock and undock with addBicycle/removeBicycle */
+    public synchronized List<Bicycle> getBicycles() { return new ArrayList<>(bicycles); }
 
     /** ✅ Get only available bicycles */
-    public List<Bicycle> getAvailableBicycles() {
-        return bicycles.stream()
-                .filter(Bicycle::isAvailable)
-                .collect(Collectors.toList());
+    public synchronized List<Bicycle> getAvailableBicycles() {
+        return new ArrayList<>(availableBicycles);
     }
 
-    public void addBicycle(Bicycle bike) {
-        if (!bicycles.contains(bike) && bicycles.size() < capacity) {
+    // ---------------- Counters (O(1)) ----------------
+    public int getAvailableCount() { return statusCounts[BicycleStatus.AVAILABLE.ordinal()]; }
+    public int getReservedCount() { return statusCounts[BicycleStatus.RESERVED.ordinal()]; }
+    public int getUnavailableCount() { return statusCounts[BicycleStatus.UNAVAILABLE.ordinal()]; }
+    public int getCount(BicycleStatus status) { return statusCounts[status.ordinal()]; }
 
-            bicycles.add(bike);
+    public void addBicycle(Bicycle bike) {
+        synchronized (DOCKING) {
+            synchronized (this) {
+                if (bike.getStation() != this && bicycles.size() < capacity) {
+                    if (bike.getStation() != null) {
+                        bike.getStation().removeBicycle(bike);
+                    }
+                    bicycles.add(bike);
+                    bike.setStation(this);
+                    count(bike, bike.getStatus(), 1);
+                }
+            }
         }
     }
 
     public void removeBicycle(Bicycle bike) {
-        bicycles.remove(bike);
+        synchronized (DOCKING) {
+            synchronized (this) {
+                if (bike.getStation() == this && bicycles.remove(bike)) {
+                    bike.setStation(null);
+                    count(bike, bike.getStatus(), -1);
+                }
+            }
+        }
+    }
+
+    /** Called by Bicycle when the status of a docked bike changes (may be off the FX thread) */
+    synchronized void statusChanged(Bicycle bike, BicycleStatus oldStatus, BicycleStatus newStatus) {
+        count(bike, oldStatus, -1);
+        count(bike, newStatus, 1);
+    }
+
+    private synchronized void count(Bicycle bike, BicycleStatus status, int delta) {
+        statusCounts[status.ordinal()] += delta;
+        if (status == BicycleStatus.AVAILABLE) {
+            if (delta > 0) availableBicycles.add(bike);
+            else availableBicycles.remove(bike);
+        }
     }
 
     // ---------------- Static Methods ----------------
@@ -60,12 +151,27 @@ public class Station {
         return allStations;
     }
 
-    /** ✅ Find a station by name */
+    /** ✅ Find a station by name (case-insensitive, O(1)) */
     public static Station findByName(String name) {
-        return allStations.stream()
-                .filter(s -> s.name.equalsIgnoreCase(name))
-                .findFirst()
-                .orElse(null);
+        if (name == null) return null;
+        return stationsByName.get(keyOf(name));
+    }
+
+    private static String keyOf(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    /** Drop a station from the name index, handing the key to a same-named station if any */
+    private static void unindex(Station station) {
+        String key = keyOf(station.name);
+        if (stationsByName.remove(key, station)) {
+            for (Station other : allStations) {
+                if (other != station && keyOf(other.name).equals(key)) {
+                    stationsByName.put(key, other);
+                    break;
+                }
+            }
+        }
     }
 
     /** ✅ Add new station and save to file */
@@ -78,56 +184,124 @@ public class Station {
         if (findByName(name) != null) return null;
 
         Station station = new Station(name, capacity, location);
-        saveToFile();
+        saveChange(station);
         return station;
     }
 
     /** ✅ Remove station and save to file */
     public static void removeStation(Station station) {
         allStations.remove(station);
-        saveToFile();
+        unindex(station);
+
+        synchronized (pendingChanges) {
+            pendingChanges.put(station.name, null);
+        }
+        PersistenceCoordinator.markDirty(CHANGES_KEY, Station::flushChanges);
     }
 
     // ---------------- File Persistence ----------------
-    /** Save all stations to file */
-    public static void saveToFile() {
-        try {
-            Files.createDirectories(FILE_PATH.getParent());
-            try (BufferedWriter writer = Files.newBufferedWriter(FILE_PATH)) {
-                for (Station station : allStations) {
-                    // Save name,capacity,location
-                    writer.write(station.name + "," + station.capacity + "," + station.location);
-                    writer.newLine();
+    /** Queue one station's current state for the journal (written once per flush window) */
+    public static void saveChange(Station station) {
+        synchronized (pendingChanges) {
+            pendingChanges.put(station.name, station);
+        }
+        PersistenceCoordinator.markDirty(CHANGES_KEY, Station::flushChanges);
+    }
+
+    /** Append every queued change to the journal in one write */
+    private static void flushChanges() {
+        Map<String, Station> changed = new LinkedHashMap<>();
+        List<String> removedNames = new ArrayList<>();
+        synchronized (pendingChanges) {
+            for (Map.Entry<String, Station> entry : pendingChanges.entrySet()) {
+                if (entry.getValue() == null) {
+                    removedNames.add(entry.getKey());
+                } else {
+                    changed.put(entry.getKey(), entry.getValue());
                 }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            pendingChanges.clear();
         }
+        STATIONS.update(changed, removedNames);
+    }
+
+    /** Schedule a rewrite of station.txt (after edits such as a rename; coalesced with other changes) */
+    public static void markDirty() {
+        PersistenceCoordinator.markDirty(STATION_KEY, Station::saveToFile);
+    }
+
+    /** Save all stations to file (full snapshot, clears the journal) */
+    public static void saveToFile() {
+        PersistenceCoordinator.flush(CHANGES_KEY); // queued changes are covered by the snapshot
+        STATIONS.rewriteAll(allStations);
     }
 
-    /** Load all stations from file */
+    private String toRecord() {
+        return name + "," + capacity + "," + location;
+    }
+
+    /** Load all stations from the binary fleet snapshot if it is current, else from file */
     public static void loadFromFile() {
+        FleetSnapshot fleet = FleetSnapshot.open(FleetSnapshot.FILE_PATH);
+        if (fleet != null && fleet.stationStamp() == sourceStamp()) {
+            loadSnapshot(fleet);
+        } else {
+            loadRecords(readRecords());
+        }
+    }
+
+    /** Stamp of the station files as they are now, queued changes included */
+    public static long sourceStamp() {
+        flushQueued();
+        return FileStamp.of(JOURNAL.files());
+    }
+
+    /** Current station records from station.txt + journal (safe to call from any thread) */
+    public static List<String> readRecords() {
+        flushQueued();
+        return JOURNAL.replay();
+    }
+
+    private static void flushQueued() {
+        PersistenceCoordinator.flush(STATION_KEY);
+        PersistenceCoordinator.flush(CHANGES_KEY);
+    }
+
+    /** Rebuild all stations from a mapped fleet snapshot */
+    public static void loadSnapshot(FleetSnapshot fleet) {
         allStations.clear();
+        stationsByName.clear();
 
-        if (!Files.exists(FILE_PATH)) return;
+        for (int i = 0; i < fleet.stationCount(); i++) {
+            String name = fleet.stationName(i);
+            if (findByName(name) == null) {
+                new Station(name, fleet.stationCapacity(i), fleet.stationLocation(i));
+            }
+        }
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(FILE_PATH)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2) {
-                    String name = parts[0];
-                    int capacity = Integer.parseInt(parts[1]);
-                    String location = parts.length >= 3 ? parts[2] : "Unknown";
+    /** Rebuild all stations from already-read records */
+    public static void loadRecords(List<String> lines) {
+        allStations.clear();
+        stationsByName.clear();
 
-                    // Avoid duplicates
-                    if (findByName(name) == null) {
-                        new Station(name, capacity, location);
-                    }
-                }
+        for (String line : lines) {
+            Station station = parseStation(line);
+            // Avoid duplicates
+            if (station != null && findByName(station.name) == null) {
+                station.register();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    private static Station parseStation(String line) {
+        CsvTokenizer row = TOKENIZER.get().reset(line);
+        if (row.fieldCount() < 2) return null;
+
+        String name = row.nextString();
+        int capacity = row.nextInt();
+        String location = row.hasMoreFields() ? row.nextString() : "";
+        if (location.isEmpty()) location = "Unknown";
+        return new Station(name, capacity, location, false);
+    }
+}
\ No newline at end of file
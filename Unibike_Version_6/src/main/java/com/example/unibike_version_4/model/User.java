@@ -1,7 +1,16 @@
 package com.example.unibike_version_4.model;
 
-import java.io.*;
+import com.example.unibike_version_4.util.BalanceLedger;
+import com.example.unibike_version_4.util.CodecRepository;
+import com.example.unibike_version_4.util.CsvTokenizer;
+import com.example.unibike_version_4.util.HistoryArchive;
+import com.example.unibike_version_4.util.HistoryIndex;
+import com.example.unibike_version_4.util.PersistenceCoordinator;
+import com.example.unibike_version_4.util.RecordJournal;
+import com.example.unibike_version_4.util.Repository;
+
 import java.nio.file.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -11,15 +20,17 @@ public class User {
     private String username;
     private String email;
     private String password;
-    private double balance;
+    private int account = -1;  // slot in the balance ledger (-1 until registered)
+    private long openingCents; // balance read from the record, until the account is opened
     private boolean active;
 
-    // Ride and history
+    // Rides of this session (the history itself stays on disk, see HistoryIndex)
     private final List<Ride> rideHistory = new ArrayList<>();
-    private final List<String> history = new ArrayList<>();
 
     // Global user list
     private static final List<User> allUsers = new ArrayList<>();
+    private static final Map<String, User> usersById = new HashMap<>();
+    private static final Map<String, User> usersByUsername = new HashMap<>();
 
     // File paths
     private static final Path USER_FILE = Paths.get(
@@ -28,43 +39,86 @@ public class User {
     private static final Path HISTORY_FILE = Paths.get(
             "src/main/resources/com/example/unibike_version_4/data/userhistory.txt"
     );
+    private static final HistoryIndex HISTORY = new HistoryIndex(HISTORY_FILE);
+    private static final HistoryArchive ARCHIVE = new HistoryArchive(HISTORY_FILE.resolveSibling("history"));
+    private static volatile LocalDate sealedOn; // day earlier history was last moved to the archive
+    // Balances are stored in user.txt once settled; balance.log is the audit trail
+    private static final BalanceLedger BALANCES = new BalanceLedger(Paths.get(
+            "src/main/resources/com/example/unibike_version_4/data/balance.log"
+    ), User::balancesSettled);
+    // user.txt is the snapshot; changes go to its journal
+    private static final RecordJournal JOURNAL = new RecordJournal(USER_FILE);
+    private static final CodecRepository<String, User> USERS = new CodecRepository<>(JOURNAL, new Repository.Codec<>() {
+        @Override
+        public String keyOf(User user) {
+            return user.id;
+        }
+
+        @Override
+        public String encode(User user) {
+            return user.toRecord();
+        }
+
+        @Override
+        public User decode(String record) {
+            return parseUser(record);
+        }
+    });
+    private static final String USER_KEY = "user.txt";
+    private static final String HISTORY_KEY = "userhistory.txt";
+    // Records may be decoded on any thread, each reusing its own tokenizer
+    private static final ThreadLocal<CsvTokenizer> TOKENIZER = ThreadLocal.withInitial(CsvTokenizer::new);
+
+    // Users changed since the last flush: id -> user (stored in its state at flush time)
+    private static final Map<String, User> pendingChanges = new LinkedHashMap<>();
+
+    // History lines waiting for the next flush
+    private static final List<String> pendingHistory = new ArrayList<>();
 
     // ---------------- Constructor ----------------
     public User(String id, String username, String email, String password, double balance, boolean active) {
+        this(id, username, email, password, BalanceLedger.toCents(balance), active);
+        register();
+    }
+
+    // Decoded from a record: not a known user, and without a balance account, until registered
+    private User(String id, String username, String email, String password, long balanceCents, boolean active) {
         this.id = id;
         this.username = username;
         this.email = email;
         this.password = password;
-        this.balance = balance;
+        this.openingCents = balanceCents;
         this.active = active;
+    }
+
+    private void register() {
+        account = BALANCES.open(id, openingCents);
         allUsers.add(this);
+        usersById.putIfAbsent(id, this);
+        usersByUsername.putIfAbsent(username, this);
     }
 
     // ---------------- Lookup Methods ----------------
     public static User findById(String id) {
-        for (User user : allUsers) {
-            if (user.getId().equals(id)) {
-                return user;
-            }
-        }
-        return null;
+        return id == null ? null : usersById.get(id);
     }
 
     public void setActive(boolean active) {
         this.active = active;
-        saveAllUsers();
+        saveChange(this);
     }
 
     public void setPassword(String password) {
         this.password = password;
-        saveAllUsers();
+        saveChange(this);
     }
 
     public static User authenticate(String username, String password) {
-        return allUsers.stream()
-                .filter(u -> u.username.equals(username) && u.password.equals(password) && u.active)
-                .findFirst()
-                .orElse(null);
+        User user = getUserByUsername(username);
+        if (user != null && user.password.equals(password) && user.active) {
+            return user;
+        }
+        return null;
     }
 
     public static List<User> getAllUsers() {
@@ -82,121 +136,153 @@ public class User {
         String timestamp = LocalDateTime.now().format(formatter);
         String entry = "- " + timestamp + " - " + action + ": " + details;
 
-        history.add(entry);
         saveHistoryEntry(this.username, entry);
     }
 
+    /** ✅ This user's whole history (today's and archived), read from file on demand */
     public List<String> getHistory() {
-        return new ArrayList<>(history);
+        return getHistoryPage(null, Integer.MAX_VALUE).entries();
+    }
+
+    /** ✅ Up to size entries older than the cursor (null = newest); page.older() continues backwards */
+    public HistoryArchive.Page getHistoryPage(HistoryArchive.Cursor before, int size) {
+        PersistenceCoordinator.flush(HISTORY_KEY); // Write queued lines first so the read sees them
+        return ARCHIVE.page(HISTORY, username, before, size);
     }
 
     private static void saveHistoryEntry(String username, String entry) {
-        try {
-            Files.createDirectories(HISTORY_FILE.getParent());
-            try (BufferedWriter writer = Files.newBufferedWriter(HISTORY_FILE,
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-                writer.write(username + "|" + entry);
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        synchronized (pendingHistory) {
+            pendingHistory.add(username + "|" + entry);
         }
+        PersistenceCoordinator.markDirty(HISTORY_KEY, User::flushHistory);
+    }
+
+    /** Append every queued history line in one write */
+    private static void flushHistory() {
+        List<String> lines;
+        synchronized (pendingHistory) {
+            lines = new ArrayList<>(pendingHistory);
+            pendingHistory.clear();
+        }
+        HISTORY.appendAll(lines); // one write, indexed as it goes
+        sealIfNewDay();
+    }
+
+    /** Index userhistory.txt without reading it into memory (safe to call from any thread) */
+    public static void indexHistory() {
+        PersistenceCoordinator.flush(HISTORY_KEY); // Write queued lines first so the index sees them
+        HISTORY.open();
+        sealIfNewDay();
     }
 
-    private static void loadHistoryFromFile() {
-        if (!Files.exists(HISTORY_FILE)) return;
-
-        try (BufferedReader reader = Files.newBufferedReader(HISTORY_FILE)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|", 2); // username|historyentry
-                if (parts.length == 2) {
-                    String username = parts[0].trim();
-                    String entry = parts[1].trim();
-
-                    User u = getUserByUsername(username);
-                    if (u != null) {
-                        u.history.add(entry);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+    /** Once per day, move earlier days out of userhistory.txt into the compressed archive */
+    private static void sealIfNewDay() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(sealedOn)) {
+            ARCHIVE.seal(HISTORY, today);
+            sealedOn = today;
         }
     }
 
     // ---------------- Balance Methods ----------------
+    /** ✅ Charge the user, never below zero (lock-free) */
     public void deductBalance(double cost) {
-        this.balance -= cost;
-        if (this.balance < 0) this.balance = 0;
-        saveAllUsers(); // ✅ Update file immediately
+        if (cost < 0) {
+            addBalance(-cost);
+            return;
+        }
+        BALANCES.debit(account, BalanceLedger.toCents(cost)); // ✅ Written with the next settlement
+    }
+
+    /** ✅ Top up the user's balance (lock-free) */
+    public void addBalance(double amount) {
+        BALANCES.credit(account, BalanceLedger.toCents(amount));
+    }
+
+    /** Store the users whose balances a settlement just logged (on the settling thread) */
+    private static void balancesSettled(Collection<String> ids) {
+        List<User> settled = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            User user = findById(id);
+            if (user != null) settled.add(user);
+        }
+        USERS.saveAll(settled);
     }
 
     // ---------------- File Operations ----------------
     public static void loadFromFile() {
+        loadRecords(readRecords());
+        indexHistory();
+    }
+
+    /** Current user records from user.txt + journal (safe to call from any thread) */
+    public static List<String> readRecords() {
+        BALANCES.settle(); // Write unsettled balances and queued changes first so the read sees them
+        PersistenceCoordinator.flush(USER_KEY);
+        return JOURNAL.replay();
+    }
+
+    /** Rebuild all users from already-read records */
+    public static void loadRecords(List<String> userLines) {
         allUsers.clear();
-        if (!Files.exists(USER_FILE)) return;
-
-        try (BufferedReader reader = Files.newBufferedReader(USER_FILE)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-
-                String[] parts = line.split(",");
-                if (parts.length >= 6) {
-                    String id = parts[0];
-                    String username = parts[1];
-                    String email = parts[2];
-                    String password = parts[3];
-                    double balance = Double.parseDouble(parts[4]);
-                    boolean active = Boolean.parseBoolean(parts[5]);
-                    new User(id, username, email, password, balance, active);
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        usersById.clear();
+        usersByUsername.clear();
+
+        for (String line : userLines) {
+            User user = parseUser(line);
+            if (user != null) user.register();
         }
+    }
 
-        // Load persistent history
-        loadHistoryFromFile();
+    private static User parseUser(String line) {
+        CsvTokenizer row = TOKENIZER.get().reset(line.trim());
+        if (row.fieldCount() < 6) return null;
+
+        String id = row.nextString();
+        String username = row.nextString();
+        String email = row.nextString();
+        String password = row.nextString();
+        long balanceCents = row.nextCents();
+        boolean active = row.nextBoolean();
+        return new User(id, username, email, password, balanceCents, active);
     }
 
+    /** Store a new user now (signup waits for it) */
     public static void saveUser(User user) {
-        try {
-            Files.createDirectories(USER_FILE.getParent());
-            try (BufferedWriter writer = Files.newBufferedWriter(USER_FILE,
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-                writer.write(user.id + "," + user.username + "," + user.email + "," +
-                        user.password + "," + user.balance + "," + user.active);
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        saveChange(user);
+        PersistenceCoordinator.flush(USER_KEY);
+    }
+
+    private String toRecord() {
+        return id + "," + username + "," + email + "," + password + ","
+                + BalanceLedger.format(getBalanceCents()) + "," + active;
+    }
+
+    /** Queue one user's current state for the journal (written once per flush window) */
+    public static void saveChange(User user) {
+        synchronized (pendingChanges) {
+            pendingChanges.put(user.id, user);
         }
+        PersistenceCoordinator.markDirty(USER_KEY, User::flushChanges);
     }
 
-    public static void saveAllUsers() {
-        try {
-            Files.createDirectories(USER_FILE.getParent());
-            try (BufferedWriter writer = Files.newBufferedWriter(USER_FILE,
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                for (User user : allUsers) {
-                    writer.write(user.id + "," + user.username + "," + user.email + "," +
-                            user.password + "," + user.balance + "," + user.active);
-                    writer.newLine();
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+    /** Append every queued change to the journal in one write */
+    private static void flushChanges() {
+        List<User> changed;
+        synchronized (pendingChanges) {
+            changed = new ArrayList<>(pendingChanges.values());
+            pendingChanges.clear();
         }
+        USERS.saveAll(changed);
+    }
+
+    /** Save all users to file (full snapshot, clears the journal) */
+    public static void saveAllUsers() {
+        USERS.rewriteAll(allUsers);
     }
 
     public static User getUserByUsername(String username) {
-        for (User u : allUsers) {
-            if (u.username.equals(username)) return u;
-        }
-        return null;
+        return username == null ? null : usersByUsername.get(username);
     }
 
     // ---------------- Getters ----------------
@@ -204,7 +290,8 @@ public class User {
     public String getUsername() { return username; }
     public String getEmail() { return email; }
     public String getPassword() { return password; }
-    public double getBalance() { return balance; }
+    public double getBalance() { return getBalanceCents() / 100.0; }
+    public long getBalanceCents() { return account < 0 ? openingCents : BALANCES.balance(account); }
     public boolean isActive() { return active; }
     public String getName() { return username; }
 }
@@ -0,0 +1,451 @@
+package com.example.unibike_version_4.server;
+
+import com.example.unibike_version_4.model.Bicycle;
+import com.example.unibike_version_4.model.FareCalculator;
+import com.example.unibike_version_4.model.Ride;
+import com.example.unibike_version_4.model.Station;
+import com.example.unibike_version_4.model.User;
+import com.example.unibike_version_4.util.ActiveRideIndex;
+import com.example.unibike_version_4.util.DataBootstrap;
+import com.example.unibike_version_4.util.PersistenceCoordinator;
+import com.example.unibike_version_4.util.SessionManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Headless HTTP API for kiosks and mobile clients.
+ *
+ * Every request runs on its own virtual thread, without a global lock:
+ * bikes are claimed by compare-and-set, balances live in the lock-free
+ * ledger and writes are queued for the persistence coordinator. What has
+ * to be checked and changed together for one user (their open ride, their
+ * hold, their balance before a ride) runs under that user's lock stripe.
+ *
+ * A ride needs at least the minimum fare on the balance, and a user has
+ * at most one open ride and one hold. Holds that are not turned into a
+ * ride within unibike.http.hold.seconds (default 600) are released.
+ *
+ * Endpoints (JSON responses, form or query parameters):
+ *   POST /login                     open a session, returns its token
+ *   POST /logout
+ *   GET  /stations                  all stations with live counters
+ *   GET  /bikes?station=NAME        available bikes (all stations if omitted)
+ *   POST /reserve   bike=ID         hold a bike for the caller
+ *   POST /rent      bike=ID         start a ride (uses the caller's hold if any)
+ *   POST /return    bike=ID[&station=NAME]
+ *   GET  /balance
+ *
+ * Calls other than /stations and /bikes need "Authorization: Bearer <token>"
+ * (or HTTP Basic credentials, which /login turns into a token).
+ *
+ * Run: java -m com.example.unibike_version_4/com.example.unibike_version_4.server.UnibikeServer [port]
+ */
+public class UnibikeServer {
+    private static final int DEFAULT_PORT = Integer.getInteger("unibike.http.port", 8080);
+    // Pending connections the OS queues before accept(); the JDK default (50) resets bursts of new clients
+    private static final int BACKLOG = Integer.getInteger("unibike.http.backlog", 4096);
+    private static final long HOLD_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("unibike.http.hold.seconds", 600));
+    private static final long SWEEP_MILLIS = Math.max(1, Math.min(HOLD_MILLIS / 10, 10_000));
+    // The shortest ride costs one minute's fare
+    private static final double MINIMUM_BALANCE = FareCalculator.calculateFare(1);
+    private static final int LOCK_STRIPES = 256;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hold-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // user id -> the bike they reserved and until when
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final ReentrantLock[] userLocks = new ReentrantLock[LOCK_STRIPES];
+
+    private record Hold(String bikeId, long expiresAt) {}
+
+    // ---------------- Constructor ----------------
+    public UnibikeServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.setExecutor(executor);
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+
+        server.createContext("/login", exchange -> handle(exchange, "POST", this::login));
+        server.createContext("/logout", exchange -> handle(exchange, "POST", this::logout));
+        server.createContext("/stations", exchange -> handle(exchange, "GET", this::stations));
+        server.createContext("/bikes", exchange -> handle(exchange, "GET", this::bikes));
+        server.createContext("/reserve", exchange -> handle(exchange, "POST", this::reserve));
+        server.createContext("/rent", exchange -> handle(exchange, "POST", this::rent));
+        server.createContext("/return", exchange -> handle(exchange, "POST", this::returnBike));
+        server.createContext("/balance", exchange -> handle(exchange, "GET", this::balance));
+    }
+
+    public void start() {
+        server.start();
+        sweeper.scheduleWithFixedDelay(this::expireHolds, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        server.stop(1);
+        sweeper.shutdown();
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // ---------------- Startup ----------------
+    /** Load the data files the same way the desktop app does (before the server starts) */
+    public static void loadModel() {
+        DataBootstrap.load();
+    }
+
+    /** Write everything still queued (after the server stopped) */
+    public static void saveModel() {
+        PersistenceCoordinator.flushNow();
+        Bicycle.saveAllBicycles();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        loadModel();
+        System.out.println("Data loaded in " + DataBootstrap.loadMillis() + " ms");
+        UnibikeServer server = new UnibikeServer(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            saveModel(); // write everything still queued
+        }));
+        server.start();
+        System.out.println("UniBike API listening on port " + server.getPort());
+    }
+
+    // ---------------- Endpoints ----------------
+    private Response login(Request request) {
+        User user = request.user();
+        if (user == null) return Response.error(401, "Invalid username or password");
+        return Response.ok("{\"token\":" + quote(SessionManager.openSession(user)) + "}");
+    }
+
+    private Response logout(Request request) {
+        if (request.bearerToken() == null) return Response.unauthorized();
+        SessionManager.closeSession(request.bearerToken());
+        return Response.ok("{}");
+    }
+
+    private Response stations(Request request) {
+        StringBuilder json = new StringBuilder("[");
+        for (Station station : Station.getAllStations()) {
+            if (json.length() > 1) json.append(',');
+            json.append("{\"name\":").append(quote(station.getName()))
+                    .append(",\"location\":").append(quote(station.getLocation()))
+                    .append(",\"capacity\":").append(station.getCapacity())
+                    .append(",\"available\":").append(station.getAvailableCount())
+                    .append(",\"reserved\":").append(station.getReservedCount())
+                    .append(",\"unavailable\":").append(station.getUnavailableCount())
+                    .append('}');
+        }
+        return Response.ok(json.append(']').toString());
+    }
+
+    private Response bikes(Request request) {
+        String stationName = request.param("station");
+        List<Bicycle> bikes;
+        if (stationName != null) {
+            Station station = Station.findByName(stationName);
+            if (station == null) return Response.error(404, "Station not found: " + stationName);
+            bikes = station.getAvailableBicycles();
+        } else {
+            bikes = Bicycle.getAllBicycles().stream().filter(Bicycle::isAvailable).toList();
+        }
+
+        StringBuilder json = new StringBuilder("[");
+        for (Bicycle bike : bikes) {
+            if (json.length() > 1) json.append(',');
+            json.append(bikeJson(bike));
+        }
+        return Response.ok(json.append(']').toString());
+    }
+
+    private Response reserve(Request request) {
+        User user = request.user();
+        if (user == null) return Response.unauthorized();
+        Bicycle bike = Bicycle.findById(request.param("bike"));
+        if (bike == null) return Response.error(404, "Bike not found");
+
+        ReentrantLock lock = lockFor(user.getId());
+        lock.lock();
+        try {
+            Response refused = checkCanRide(user);
+            if (refused != null) return refused;
+            Hold hold = holds.get(user.getId());
+            if (hold != null) return Response.error(409, "You already hold bike " + hold.bikeId());
+
+            if (!bike.tryClaim(user.getId())) {
+                return Response.error(409, "Bike " + bike.getId() + " is not available");
+            }
+            holds.put(user.getId(), new Hold(bike.getId(), System.currentTimeMillis() + HOLD_MILLIS));
+        } finally {
+            lock.unlock();
+        }
+        Bicycle.saveChange(bike);
+        user.addHistoryEntry("Reserved Bike", "Bike ID: " + bike.getId());
+        return Response.ok(bikeJson(bike));
+    }
+
+    private Response rent(Request request) {
+        User user = request.user();
+        if (user == null) return Response.unauthorized();
+        Bicycle bike = Bicycle.findById(request.param("bike"));
+        if (bike == null) return Response.error(404, "Bike not found");
+        if (ActiveRideIndex.getOpenRideForBike(bike.getId()) != null) {
+            return Response.error(409, "Bike " + bike.getId() + " is already on a ride");
+        }
+
+        Ride ride;
+        ReentrantLock lock = lockFor(user.getId());
+        lock.lock();
+        try {
+            Response refused = checkCanRide(user);
+            if (refused != null) return refused;
+            try {
+                ride = new Ride(user, bike); // claims the bike unless the caller already holds it
+            } catch (IllegalStateException e) {
+                return Response.error(409, e.getMessage());
+            }
+            // The hold is used up; a hold on another bike is given back
+            Hold hold = holds.remove(user.getId());
+            if (hold != null && !hold.bikeId().equals(bike.getId())) {
+                releaseHold(user.getId(), hold);
+            }
+        } finally {
+            lock.unlock();
+        }
+        user.addHistoryEntry("Rented Bike", "Bike ID: " + bike.getId());
+        return Response.ok(rideJson(ride));
+    }
+
+    private Response returnBike(Request request) {
+        User user = request.user();
+        if (user == null) return Response.unauthorized();
+        String stationName = request.param("station");
+        Station station = null;
+        if (stationName != null) {
+            station = Station.findByName(stationName);
+            if (station == null) return Response.error(404, "Station not found: " + stationName);
+        }
+
+        Ride ride;
+        ReentrantLock lock = lockFor(user.getId());
+        lock.lock();
+        try {
+            // Looked up and ended together, so two returns of one ride cannot both charge
+            ride = ActiveRideIndex.findOpenRide(user.getId(), request.param("bike"));
+            if (ride == null) return Response.error(404, "No active ride found for this bike");
+            ride.endRide(); // releases the bike and charges the user
+        } finally {
+            lock.unlock();
+        }
+
+        Bicycle bike = ride.getBicycle();
+        if (station != null) {
+            bike.setStationName(station.getName());
+        }
+        Bicycle.saveChange(bike);
+        return Response.ok(rideJson(ride));
+    }
+
+    private Response balance(Request request) {
+        User user = request.user();
+        if (user == null) return Response.unauthorized();
+        return Response.ok("{\"user\":" + quote(user.getUsername()) + ",\"balance\":" + user.getBalance() + "}");
+    }
+
+    // ---------------- Rides and Holds ----------------
+    /** Why this user may not start a ride or hold a bike now, or null (call under the user's lock) */
+    private static Response checkCanRide(User user) {
+        if (!ActiveRideIndex.getOpenRides(user.getId()).isEmpty()) {
+            return Response.error(409, "You already have an active ride");
+        }
+        if (user.getBalance() < MINIMUM_BALANCE) {
+            return Response.error(402, "A ride needs a balance of at least " + MINIMUM_BALANCE);
+        }
+        return null;
+    }
+
+    private ReentrantLock lockFor(String userId) {
+        return userLocks[Math.floorMod(userId.hashCode(), userLocks.length)];
+    }
+
+    /** Release every hold that was not turned into a ride in time (on the sweeper thread) */
+    private void expireHolds() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Hold> entry : holds.entrySet()) {
+            if (entry.getValue().expiresAt() > now) continue;
+
+            String userId = entry.getKey();
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                // Still the same hold: the user did not rent or reserve in the meantime
+                if (!holds.remove(userId, entry.getValue())) continue;
+                if (!releaseHold(userId, entry.getValue())) continue;
+            } finally {
+                lock.unlock();
+            }
+            User user = User.findById(userId);
+            if (user != null) {
+                user.addHistoryEntry("Reservation Expired", "Bike ID: " + entry.getValue().bikeId());
+            }
+        }
+    }
+
+    /** Give a held bike back unless it is out on a ride (call under the user's lock) */
+    private static boolean releaseHold(String userId, Hold hold) {
+        Bicycle bike = Bicycle.findById(hold.bikeId());
+        if (bike == null || !bike.isClaimedBy(userId) || ActiveRideIndex.getOpenRideForBike(bike.getId()) != null) {
+            return false;
+        }
+        if (!bike.release()) return false;
+        Bicycle.saveChange(bike);
+        return true;
+    }
+
+    // ---------------- JSON ----------------
+    private static String bikeJson(Bicycle bike) {
+        return "{\"id\":" + quote(bike.getId())
+                + ",\"station\":" + quote(bike.getStationName())
+                + ",\"status\":" + quote(bike.getStatus().name()) + "}";
+    }
+
+    private static String rideJson(Ride ride) {
+        return "{\"id\":" + quote(ride.getId())
+                + ",\"bike\":" + quote(ride.getBicycle().getId())
+                + ",\"ended\":" + (ride.getEndTime() != null)
+                + ",\"cost\":" + ride.getCost()
+                + ",\"balance\":" + ride.getUser().getBalance() + "}";
+    }
+
+    private static String quote(String value) {
+        if (value == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // ---------------- Plumbing ----------------
+    private interface Endpoint {
+        Response serve(Request request);
+    }
+
+    private record Response(int status, String body) {
+        static Response ok(String body) { return new Response(200, body); }
+        static Response error(int status, String message) { return new Response(status, "{\"error\":" + quote(message) + "}"); }
+        static Response unauthorized() { return error(401, "Login required"); }
+    }
+
+    private record Request(Map<String, String> params, String authorization) {
+        String param(String name) {
+            return params.get(name);
+        }
+
+        String bearerToken() {
+            if (authorization == null || !authorization.startsWith("Bearer ")) return null;
+            return authorization.substring(7).trim();
+        }
+
+        /** The user behind the session token or Basic credentials, or null */
+        User user() {
+            String token = bearerToken();
+            if (token != null) return SessionManager.getUser(token);
+            if (authorization == null || !authorization.startsWith("Basic ")) return null;
+            String decoded;
+            try {
+                decoded = new String(Base64.getDecoder().decode(authorization.substring(6).trim()), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            int colon = decoded.indexOf(':');
+            if (colon < 0) return null;
+            return User.authenticate(decoded.substring(0, colon), decoded.substring(colon + 1));
+        }
+    }
+
+    private static void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        try (exchange) {
+            Response response;
+            if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                response = Response.error(405, "Use " + method);
+            } else {
+                Request request = new Request(readParams(exchange), exchange.getRequestHeaders().getFirst("Authorization"));
+                try {
+                    response = endpoint.serve(request);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    response = Response.error(500, "Internal error");
+                }
+            }
+
+            byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /** Query string parameters, plus form fields for POST bodies */
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        if (exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isBlank()) return;
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.unibike_version_4.util;
+
+import com.example.unibike_version_4.model.Ride;
+
+import java.util.*;
+
+/**
+ * Index of rides that have not ended yet.
+ * Ride keeps it up to date when a ride is created, ended or loaded.
+ */
+public class ActiveRideIndex {
+    private static final Map<String, Set<Ride>> openRidesByUser = new HashMap<>();
+    private static final Map<String, Ride> openRideByBike = new HashMap<>();
+
+    // ---------------- Updates ----------------
+    public static synchronized void rideStarted(Ride ride) {
+        openRidesByUser.computeIfAbsent(ride.getUser().getId(), k -> new LinkedHashSet<>()).add(ride);
+        openRideByBike.put(ride.getBicycle().getId(), ride);
+    }
+
+    public static synchronized void rideEnded(Ride ride) {
+        String userId = ride.getUser().getId();
+        Set<Ride> rides = openRidesByUser.get(userId);
+        if (rides != null) {
+            rides.remove(ride);
+            if (rides.isEmpty()) openRidesByUser.remove(userId);
+        }
+        openRideByBike.remove(ride.getBicycle().getId(), ride);
+    }
+
+    public static synchronized void clear() {
+        openRidesByUser.clear();
+        openRideByBike.clear();
+    }
+
+    // ---------------- Lookups ----------------
+    /** Open rides of one user, oldest first */
+    public static synchronized List<Ride> getOpenRides(String userId) {
+        Set<Ride> rides = openRidesByUser.get(userId);
+        return rides == null ? new ArrayList<>() : new ArrayList<>(rides);
+    }
+
+    /** The open ride on a bike, or null */
+    public static synchronized Ride getOpenRideForBike(String bikeId) {
+        return openRideByBike.get(bikeId);
+    }
+
+    /** The open ride of this user on this bike, or null */
+    public static synchronized Ride findOpenRide(String userId, String bikeId) {
+        Set<Ride> rides = openRidesByUser.get(userId);
+        if (rides == null) return null;
+        for (Ride ride : rides) {
+            if (ride.getBicycle().getId().equals(bikeId)) return ride;
+        }
+        return null;
+    }
+}
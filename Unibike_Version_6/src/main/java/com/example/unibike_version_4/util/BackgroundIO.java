@@ -0,0 +1,83 @@
+package com.example.unibike_version_4.util;
+
+import javafx.concurrent.Task;
+import javafx.scene.control.ProgressIndicator;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs file I/O off the JavaFX application thread.
+ *
+ * There is a single I/O thread, so loads and saves happen in the order
+ * they were submitted (a save queued before a reload is written first).
+ * Results are handed back on the FX thread.
+ */
+public class BackgroundIO {
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "background-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public static Executor executor() {
+        return executor;
+    }
+
+    // ---------------- Tasks ----------------
+    /**
+     * Run the loaders one after another on the I/O thread, reporting progress
+     * to the indicator, then call onLoaded on the FX thread.
+     */
+    public static Task<Void> load(ProgressIndicator indicator, Runnable onLoaded, Runnable... loaders) {
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                for (int i = 0; i < loaders.length; i++) {
+                    loaders[i].run();
+                    updateProgress(i + 1, loaders.length);
+                }
+                return null;
+            }
+        };
+        start(task, indicator, result -> onLoaded.run());
+        return task;
+    }
+
+    /** Run work on the I/O thread and hand its result to onDone on the FX thread */
+    public static <T> Task<T> submit(Callable<T> work, ProgressIndicator indicator, Consumer<T> onDone) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        start(task, indicator, onDone);
+        return task;
+    }
+
+    private static <T> void start(Task<T> task, ProgressIndicator indicator, Consumer<T> onDone) {
+        if (indicator != null) {
+            indicator.progressProperty().bind(task.progressProperty());
+            indicator.visibleProperty().bind(task.runningProperty());
+        }
+        task.setOnSucceeded(event -> onDone.accept(task.getValue()));
+        task.setOnFailed(event -> task.getException().printStackTrace());
+        executor.execute(task);
+    }
+
+    // ---------------- Shutdown ----------------
+    /** Let queued work finish (used on exit, before the final save) */
+    public static void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.unibike_version_4.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Account balances in whole cents.
+ *
+ * Each account gets a slot in a chunked AtomicLongArray, so debits and
+ * credits are lock-free compare-and-set updates that allocate nothing.
+ * Every change is also written into a preallocated ring: the writer claims
+ * a sequence number, fills that slot and publishes it. Once per flush
+ * window the ring is settled to the transaction log in one append, through
+ * a GroupCommitWriter so concurrent settlements share one fsync. Only a
+ * full ring makes a writer wait (it settles first rather than drop anything).
+ *
+ * The log is an audit trail and is never read back: the balances of record
+ * are the ones the owner stores (user.txt), which it is told to write
+ * for every account a settlement touched.
+ *
+ * Log line format:  <epoch millis>,<account id>,<delta cents>,<balance cents>
+ */
+public class BalanceLedger {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // accounts per chunk
+    private static final int DEFAULT_RING_SIZE = 4096;     // unsettled transactions before writers wait
+
+    private final GroupCommitWriter log;
+    private final String flushKey;
+    private final Runnable settler = this::settle; // reused, so queuing a flush allocates nothing
+    private final Consumer<Collection<String>> onSettled; // ids of the accounts a settlement touched
+
+    // Slot -> balance. Chunks are only ever added, so readers never see a copy in progress.
+    private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+    private final List<String> accountIds = new ArrayList<>();
+    private final Map<String, Integer> slotsById = new HashMap<>();
+
+    // Unsettled transactions: slot (sequence & mask) of the ring holds transaction number sequence
+    private final int mask;
+    private final int[] ringAccounts;
+    private final long[] ringDeltas;
+    private final long[] ringBalances;
+    private final long[] ringTimes;
+    private final AtomicLongArray published;                 // sequence a slot holds once it is filled
+    private final AtomicLong claimed = new AtomicLong();     // next sequence to hand out
+    private final AtomicLong settled = new AtomicLong();     // next sequence to settle; earlier slots are free
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final Object settleLock = new Object();          // one settlement at a time, in log order
+
+    // ---------------- Constructor ----------------
+    public BalanceLedger(Path logPath) {
+        this(logPath, DEFAULT_RING_SIZE, accounts -> { });
+    }
+
+    public BalanceLedger(Path logPath, Consumer<Collection<String>> onSettled) {
+        this(logPath, DEFAULT_RING_SIZE, onSettled);
+    }
+
+    /** ringSize is rounded up to a power of two */
+    public BalanceLedger(Path logPath, int ringSize, Consumer<Collection<String>> onSettled) {
+        this.log = new GroupCommitWriter(logPath);
+        this.flushKey = logPath.getFileName().toString();
+        this.onSettled = onSettled;
+        int size = Integer.highestOneBit(Math.max(2, ringSize) - 1) << 1;
+        this.mask = size - 1;
+        this.ringAccounts = new int[size];
+        this.ringDeltas = new long[size];
+        this.ringBalances = new long[size];
+        this.ringTimes = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1); // nothing published yet (slot 0 would otherwise look like sequence 0)
+        }
+    }
+
+    // ---------------- Accounts ----------------
+    /**
+     * Open an account with a starting balance (not logged) and return its slot.
+     * An account id keeps its slot across reloads, so older objects holding it stay valid.
+     */
+    public synchronized int open(String accountId, long initialCents) {
+        Integer existing = slotsById.get(accountId);
+        if (existing != null) {
+            cell(existing).set(existing & (CHUNK_SIZE - 1), initialCents);
+            return existing;
+        }
+
+        int slot = accountIds.size();
+        if ((slot >> CHUNK_BITS) >= chunks.length) {
+            AtomicLongArray[] grown = new AtomicLongArray[chunks.length + 1];
+            System.arraycopy(chunks, 0, grown, 0, chunks.length);
+            grown[chunks.length] = new AtomicLongArray(CHUNK_SIZE);
+            chunks = grown;
+        }
+        accountIds.add(accountId);
+        slotsById.put(accountId, slot);
+        cell(slot).set(slot & (CHUNK_SIZE - 1), initialCents);
+        return slot;
+    }
+
+    // ---------------- Balance Updates ----------------
+    public long balance(int slot) {
+        return cell(slot).get(slot & (CHUNK_SIZE - 1));
+    }
+
+    /** Add cents to an account and return the new balance */
+    public long credit(int slot, long cents) {
+        long after = cell(slot).addAndGet(slot & (CHUNK_SIZE - 1), cents);
+        record(slot, cents, after);
+        return after;
+    }
+
+    /**
+     * Take up to the given cents from an account, never going below zero.
+     * Returns the cents actually taken.
+     */
+    public long debit(int slot, long cents) {
+        AtomicLongArray cell = cell(slot);
+        int index = slot & (CHUNK_SIZE - 1);
+        long before;
+        long after;
+        do {
+            before = cell.get(index);
+            after = Math.max(0, before - cents);
+        } while (!cell.compareAndSet(index, before, after));
+
+        long taken = before - after;
+        record(slot, -taken, after);
+        return taken;
+    }
+
+    private AtomicLongArray cell(int slot) {
+        return chunks[slot >> CHUNK_BITS];
+    }
+
+    // ---------------- Settlement ----------------
+    private void record(int slot, long delta, long after) {
+        if (delta == 0) return;
+        long sequence = claimed.getAndIncrement();
+        while (sequence - settled.get() > mask) {
+            // Ring full: write now rather than drop anything
+            if (!settle()) Thread.yield(); // an earlier slot is still being filled
+        }
+
+        int index = (int) sequence & mask;
+        ringAccounts[index] = slot;
+        ringDeltas[index] = delta;
+        ringBalances[index] = after;
+        ringTimes[index] = System.currentTimeMillis();
+        published.set(index, sequence); // volatile write: the settler sees the fields above
+
+        // Once per flush window; settle() clears the flag before it reads the ring
+        if (!flushQueued.get() && flushQueued.compareAndSet(false, true)) {
+            PersistenceCoordinator.markDirty(flushKey, settler);
+        }
+    }
+
+    /**
+     * Append every published transaction to the log, wait until it is
+     * committed, then report the accounts it touched. Stops at a slot that
+     * is still being filled (its writer queues the next flush).
+     * Returns whether anything was settled.
+     */
+    public boolean settle() {
+        GroupCommitWriter.Batch batch;
+        Set<String> touched = new LinkedHashSet<>();
+        synchronized (settleLock) {
+            flushQueued.set(false); // transactions published from now on queue another flush
+            long from = settled.get();
+            long end = claimed.get();
+            long next = from;
+            List<String> lines = new ArrayList<>();
+            synchronized (this) {
+                while (next < end && published.get((int) next & mask) == next) {
+                    int index = (int) next & mask;
+                    String accountId = accountIds.get(ringAccounts[index]);
+                    lines.add(ringTimes[index] + "," + accountId + "," + ringDeltas[index] + "," + ringBalances[index]);
+                    touched.add(accountId);
+                    next++;
+                }
+            }
+            if (next == from) return false;
+            settled.set(next); // the slots are read, writers may reuse them
+            batch = log.enqueue(lines); // queued under the lock, so the log keeps transaction order
+        }
+
+        try {
+            log.await(batch);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        onSettled.accept(touched);
+        return true;
+    }
+
+    // ---------------- Conversion ----------------
+    /** Amount to cents, rounded half-up (no boxing on the fare path) */
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /** Parse a decimal amount such as "94.15" exactly */
+    public static long parseCents(String amount) {
+        return new BigDecimal(amount.trim()).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    /** Cents as a decimal amount such as "94.15" */
+    public static String format(long cents) {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+}
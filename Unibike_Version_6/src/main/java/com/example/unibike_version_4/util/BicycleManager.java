@@ -14,11 +14,14 @@ public class BicycleManager {
 
         if (!file.exists()) return bicycles;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                bicycles.add(line.split(","));
-            }
+        try {
+            CsvTokenizer.forEachRow(file.toPath(), ',', row -> {
+                String[] fields = new String[row.fieldCount()];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = row.nextString();
+                }
+                bicycles.add(fields);
+            });
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,102 @@
+package com.example.unibike_version_4.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository of model objects kept as CSV records in a record store
+ * (RideLedger, RecordJournal or LsmRepository).
+ *
+ * Objects are encoded when stored and decoded when read back; decoded
+ * objects are new instances, not the ones the model has loaded.
+ */
+public class CodecRepository<K, V> implements Repository<K, V> {
+    private final Repository<K, String> records;
+    private final Codec<K, V> codec;
+
+    // ---------------- Constructor ----------------
+    public CodecRepository(Repository<K, String> records, Codec<K, V> codec) {
+        this.records = records;
+        this.codec = codec;
+    }
+
+    // ---------------- Repository ----------------
+    @Override
+    public V get(K key) {
+        String record = records.get(key);
+        return record == null ? null : codec.decode(record);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        records.put(key, codec.encode(value));
+    }
+
+    @Override
+    public void putAll(Map<K, V> entries) {
+        records.putAll(encode(entries));
+    }
+
+    @Override
+    public void remove(K key) {
+        records.remove(key);
+    }
+
+    @Override
+    public void update(Map<K, V> entries, Collection<K> removed) {
+        records.update(encode(entries), removed);
+    }
+
+    /** Every stored object; unreadable records are skipped */
+    @Override
+    public List<V> values() {
+        List<String> stored = records.values();
+        List<V> values = new ArrayList<>(stored.size());
+        for (String record : stored) {
+            V value = codec.decode(record);
+            if (value != null) values.add(value);
+        }
+        return values;
+    }
+
+    @Override
+    public void rewrite(Map<K, V> entries) {
+        records.rewrite(encode(entries));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    // ---------------- Keyed by the codec ----------------
+    /** Store each value under its own key with a single write */
+    public void saveAll(Collection<V> values) {
+        putAll(byKey(values));
+    }
+
+    /** Replace everything stored with the given values */
+    public void rewriteAll(Collection<V> values) {
+        rewrite(byKey(values));
+    }
+
+    /** Values keyed by the codec; the last value of a key wins */
+    public Map<K, V> byKey(Collection<V> values) {
+        Map<K, V> byKey = new LinkedHashMap<>();
+        for (V value : values) {
+            byKey.put(codec.keyOf(value), value);
+        }
+        return byKey;
+    }
+
+    private Map<K, String> encode(Map<K, V> entries) {
+        Map<K, String> encoded = new LinkedHashMap<>();
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            encoded.put(entry.getKey(), codec.encode(entry.getValue()));
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.unibike_version_4.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Reusable cursor over the fields of one CSV line.
+ *
+ * Fields are read left to right and parsed where they lie: numbers,
+ * booleans, amounts in cents and "yyyy-MM-dd HH:mm:ss" timestamps are
+ * built straight from the characters, so only the fields a loader keeps
+ * as text become Strings (no String[] and no substrings per line). Input
+ * that the fast paths do not recognise is handed to the standard parser,
+ * which also reports errors the usual way.
+ *
+ * A line is copied once into a reusable char array (or, when streaming a
+ * file with forEachRow, read where it lies in the CharBuffer) and scanned
+ * there. The data files have no quoting, so a field is everything between
+ * two delimiters.
+ */
+public final class CsvTokenizer {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Powers of ten that are exact doubles (fast path of nextDouble)
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final char delimiter;
+    private char[] copy = new char[256]; // lines given as Strings are copied here
+    private char[] text = copy;
+    private int lineStart;
+    private int lineEnd;
+    private int[] ends = new int[16]; // end of every field, found in one pass on reset
+    private int fieldCount;
+    private int next;                 // index of the next field
+    private int position;             // start of the next field
+    private int fieldEnd;             // end of the field last read
+
+    /** Called once per non-blank line, with the tokenizer at the line's first field */
+    public interface RowHandler {
+        void row(CsvTokenizer row);
+    }
+
+    // ---------------- Constructor ----------------
+    public CsvTokenizer() {
+        this(',');
+    }
+
+    public CsvTokenizer(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    // ---------------- Lines ----------------
+    /** Start reading the fields of a whole line (copied into the reusable array) */
+    public CsvTokenizer reset(String line) {
+        int length = line.length();
+        if (length > copy.length) copy = new char[Math.max(length, copy.length * 2)];
+        line.getChars(0, length, copy, 0);
+        return reset(copy, 0, length);
+    }
+
+    /** Start reading the fields of chars[start, end) in place (not copied: keep it unchanged meanwhile) */
+    public CsvTokenizer reset(char[] chars, int start, int end) {
+        this.text = chars;
+        this.lineStart = start;
+        this.lineEnd = end;
+        this.position = start;
+        this.next = 0;
+
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (chars[i] == delimiter) {
+                if (count == ends.length - 1) ends = Arrays.copyOf(ends, ends.length * 2);
+                ends[count++] = i;
+            }
+        }
+        ends[count++] = end;
+        fieldCount = count;
+        return this;
+    }
+
+    /** Number of fields on the line, empty ones included (like split(delimiter, -1)) */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public boolean hasMoreFields() {
+        return next < fieldCount;
+    }
+
+    /** The whole line as a String */
+    public String line() {
+        return new String(text, lineStart, lineEnd - lineStart);
+    }
+
+    // ---------------- Fields ----------------
+    /** Move past the next field; returns its start */
+    private int advance() {
+        if (next >= fieldCount) throw new IllegalStateException("No more fields on the line");
+        int start = position;
+        fieldEnd = ends[next++];
+        position = fieldEnd + 1;
+        return start;
+    }
+
+    public void skip() {
+        advance();
+    }
+
+    public String nextString() {
+        int start = advance();
+        return new String(text, start, fieldEnd - start);
+    }
+
+    /** Whether the next field is exactly the given text (it is not consumed) */
+    public boolean nextEquals(String expected) {
+        if (next >= fieldCount || ends[next] - position != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (text[position + i] != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** Like Boolean.parseBoolean: true only for "true", ignoring case */
+    public boolean nextBoolean() {
+        int start = advance();
+        if (fieldEnd - start != 4) return false;
+        return (text[start] | 0x20) == 't' && (text[start + 1] | 0x20) == 'r'
+                && (text[start + 2] | 0x20) == 'u' && (text[start + 3] | 0x20) == 'e';
+    }
+
+    public int nextInt() {
+        int start = position;
+        long value = nextLong();
+        if (value != (int) value) throw new NumberFormatException("Out of int range: " + field(start));
+        return (int) value;
+    }
+
+    public long nextLong() {
+        int start = advance();
+        int i = start;
+        boolean negative = false;
+        if (i < fieldEnd && (text[i] == '-' || text[i] == '+')) {
+            negative = text[i] == '-';
+            i++;
+        }
+        // Up to 18 digits cannot overflow; anything else goes to the standard parser
+        if (i == fieldEnd || fieldEnd - i > 18) return Long.parseLong(field(start));
+        long value = 0;
+        for (; i < fieldEnd; i++) {
+            int d = text[i] - '0';
+            if (d < 0 || d > 9) return Long.parseLong(field(start));
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Plain decimals ("12", "-3.75") with at most 15 significant digits are
+     * exact as a long over a power of ten, so one division gives the correctly
+     * rounded double; everything else goes to Double.parseDouble.
+     */
+    public double nextDouble() {
+        int start = advance();
+        int i = start;
+        boolean negative = false;
+        if (i < fieldEnd && (text[i] == '-' || text[i] == '+')) {
+            negative = text[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int scale = -1; // digits after the point, -1 until a point is seen
+        boolean sawDigit = false;
+        for (; i < fieldEnd; i++) {
+            char c = text[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) significant++;
+                if (scale >= 0) scale++;
+                sawDigit = true;
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return Double.parseDouble(field(start)); // exponent, NaN, ...
+            }
+        }
+        if (!sawDigit || significant > 15 || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(field(start));
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /** An amount such as "94.15" in whole cents, rounded half-up exactly like BalanceLedger.parseCents */
+    public long nextCents() {
+        int start = advance();
+        int i = start;
+        int to = fieldEnd;
+        while (i < to && text[i] <= ' ') i++;
+        while (to > i && text[to - 1] <= ' ') to--;
+
+        boolean negative = false;
+        if (i < to && (text[i] == '-' || text[i] == '+')) {
+            negative = text[i] == '-';
+            i++;
+        }
+        long units = 0;
+        int integerDigits = 0;
+        for (; i < to && isDigit(text[i]); i++) {
+            if (++integerDigits > 15) return BalanceLedger.parseCents(field(start));
+            units = units * 10 + (text[i] - '0');
+        }
+        long hundredths = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (i < to && text[i] == '.') {
+            for (i++; i < to && isDigit(text[i]); i++) {
+                int d = text[i] - '0';
+                if (fractionDigits < 2) hundredths = hundredths * 10 + d;
+                else if (fractionDigits == 2) roundUp = d >= 5; // the third decimal decides
+                fractionDigits++;
+            }
+        }
+        if (i != to || integerDigits + fractionDigits == 0) {
+            return BalanceLedger.parseCents(field(start)); // exponent or bad input: exact slow path
+        }
+        if (fractionDigits == 1) hundredths *= 10;
+        long cents = units * 100 + hundredths + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    /** "yyyy-MM-dd HH:mm:ss" read straight from the characters */
+    public LocalDateTime nextTimestamp() {
+        int s = advance();
+        if (fieldEnd - s != 19 || text[s + 4] != '-' || text[s + 7] != '-'
+                || text[s + 10] != ' ' || text[s + 13] != ':' || text[s + 16] != ':') {
+            return LocalDateTime.parse(field(s), TIMESTAMP); // unusual input: let the formatter report it
+        }
+        int year = digits(s, 4);
+        int month = digits(s + 5, 2);
+        int day = digits(s + 8, 2);
+        int hour = digits(s + 11, 2);
+        int minute = digits(s + 14, 2);
+        int second = digits(s + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return LocalDateTime.parse(field(s), TIMESTAMP);
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second);
+        } catch (DateTimeException e) {
+            // e.g. "2025-02-29": the formatter's smart resolving reads it as the 28th
+            return LocalDateTime.parse(field(s), TIMESTAMP);
+        }
+    }
+
+    /** The constant whose name is the next field, or null (no String is made) */
+    public <E extends Enum<E>> E nextEnum(E[] constants) {
+        for (E constant : constants) {
+            if (nextEquals(constant.name())) {
+                advance();
+                return constant;
+            }
+        }
+        advance();
+        return null;
+    }
+
+    // ---------------- Helpers ----------------
+    private String field(int start) {
+        return new String(text, start, fieldEnd - start);
+    }
+
+    /** Value of count decimal digits at from, or -1 if one is not a digit */
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = text[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // ---------------- Streaming ----------------
+    /**
+     * Decode a UTF-8 file line by line into one reusable CharBuffer and hand
+     * every non-blank line to the handler, parsed where it lies in the buffer.
+     * The row is only valid during the call; keep what you need by reading
+     * fields from it.
+     */
+    public static void forEachRow(Path file, char delimiter, RowHandler handler) throws IOException {
+        CsvTokenizer row = new CsvTokenizer(delimiter);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+        CharBuffer buffer = CharBuffer.allocate(64 * 1024);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean eof = false;
+            while (true) {
+                if (!eof && channel.read(bytes) < 0) eof = true;
+                bytes.flip();
+                boolean done = decoder.decode(bytes, buffer, eof).isUnderflow() && eof;
+                bytes.compact();
+                if (done) decoder.flush(buffer);
+
+                char[] chars = buffer.array();
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (chars[i] == '\n') {
+                        emit(row, chars, lineStart, i, handler);
+                        lineStart = i + 1;
+                    }
+                }
+                if (done) {
+                    emit(row, chars, lineStart, limit, handler); // last line without a line end
+                    return;
+                }
+                if (lineStart == 0 && limit == chars.length) {
+                    // One line fills the whole buffer: grow it
+                    CharBuffer bigger = CharBuffer.allocate(chars.length * 2);
+                    bigger.put(chars, 0, limit);
+                    buffer = bigger;
+                } else {
+                    // Keep the unfinished line at the front and decode more after it
+                    System.arraycopy(chars, lineStart, chars, 0, limit - lineStart);
+                    buffer.position(limit - lineStart);
+                }
+            }
+        }
+    }
+
+    private static void emit(CsvTokenizer row, char[] chars, int start, int end, RowHandler handler) {
+        if (end > start && chars[end - 1] == '\r') end--;
+        boolean blank = true;
+        for (int i = start; i < end && blank; i++) {
+            blank = chars[i] <= ' ';
+        }
+        if (!blank) handler.row(row.reset(chars, start, end));
+    }
+}
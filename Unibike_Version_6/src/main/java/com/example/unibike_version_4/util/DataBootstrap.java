@@ -0,0 +1,104 @@
+package com.example.unibike_version_4.util;
+
+import com.example.unibike_version_4.model.Bicycle;
+import com.example.unibike_version_4.model.Ride;
+import com.example.unibike_version_4.model.Station;
+import com.example.unibike_version_4.model.User;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads every data file once at startup.
+ *
+ * The five files are read concurrently (the history file is only indexed,
+ * see HistoryIndex). Objects are then built in
+ * dependency order (stations, bicycles, users, rides) so every
+ * cross-reference resolves on the first pass. The model classes keep the
+ * loaded objects; views call ensureLoaded() and then read them through
+ * DataRepository instead of reloading.
+ *
+ * Stations and bicycles come from the binary FleetSnapshot when it still
+ * matches their CSV files; otherwise the CSV is parsed and the binary copy
+ * rebuilt for next time.
+ */
+public class DataBootstrap {
+
+    // How long the last load took, or -1 before the first one finished
+    private static volatile long loadMillis = -1;
+
+    public static boolean isLoaded() {
+        return loadMillis >= 0;
+    }
+
+    public static long loadMillis() {
+        return loadMillis;
+    }
+
+    /** ✅ Load once; later calls reuse the loaded model */
+    public static void ensureLoaded() {
+        if (isLoaded()) return;
+        synchronized (DataBootstrap.class) {
+            if (!isLoaded()) load();
+        }
+    }
+
+    /** Read all data files in parallel and rebuild the model from them */
+    public static synchronized void load() {
+        long start = System.nanoTime();
+
+        ExecutorService readers = Executors.newFixedThreadPool(5, r -> {
+            Thread t = new Thread(r, "data-bootstrap");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            // Stamp the fleet files before reading them, so a change made meanwhile is never hidden
+            long stationStamp = Station.sourceStamp();
+            long bicycleStamp = Bicycle.sourceStamp();
+            FleetSnapshot fleet = FleetSnapshot.open(FleetSnapshot.FILE_PATH);
+            boolean stationsMapped = fleet != null && fleet.stationStamp() == stationStamp;
+            boolean bicyclesMapped = fleet != null && fleet.bicycleStamp() == bicycleStamp;
+
+            Future<List<String>> stations = stationsMapped ? null : readers.submit(Station::readRecords);
+            Future<List<String>> bicycles = bicyclesMapped ? null : readers.submit(Bicycle::readRecords);
+            Future<List<String>> users = readers.submit(User::readRecords);
+            Future<?> history = readers.submit(User::indexHistory); // positions only, entries stay on disk
+            Future<List<String>> rides = readers.submit(Ride::readRecords);
+
+            // Build in dependency order once the files are in memory
+            if (stationsMapped) Station.loadSnapshot(fleet);
+            else Station.loadRecords(get(stations));
+            if (bicyclesMapped) Bicycle.loadSnapshot(fleet);
+            else Bicycle.loadRecords(get(bicycles));
+
+            // Rebuild the binary copy while users load. It reads each bike's status, and ride replay
+            // changes those, so it must finish first: the copy holds exactly what the files hold.
+            Future<?> snapshot = (stationsMapped && bicyclesMapped) ? null
+                    : readers.submit(() -> FleetSnapshot.write(FleetSnapshot.FILE_PATH, stationStamp, bicycleStamp,
+                            List.copyOf(Station.getAllStations()), List.copyOf(Bicycle.getAllBicycles())));
+            User.loadRecords(get(users));
+            get(history);
+            if (snapshot != null) get(snapshot);
+            Ride.loadRecords(get(rides));
+        } finally {
+            readers.shutdown();
+        }
+
+        loadMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading data", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to read data files", e.getCause());
+        }
+    }
+}
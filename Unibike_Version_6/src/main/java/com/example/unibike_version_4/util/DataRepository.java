@@ -0,0 +1,78 @@
+package com.example.unibike_version_4.util;
+
+import com.example.unibike_version_4.model.Bicycle;
+import com.example.unibike_version_4.model.Ride;
+import com.example.unibike_version_4.model.Station;
+import com.example.unibike_version_4.model.User;
+
+import java.util.List;
+
+/**
+ * Process-wide access to the loaded data, shared by every view.
+ *
+ * The entity collections are loaded once (DataBootstrap) and then kept in
+ * memory; changes are written back through PersistenceCoordinator. Views
+ * read from here instead of touching the data files, so switching scenes
+ * costs no I/O.
+ */
+public class DataRepository {
+
+    // ---------------- Loading ----------------
+    /** Load the data files if that has not happened yet (blocking) */
+    public static void ensureLoaded() {
+        DataBootstrap.ensureLoaded();
+    }
+
+    public static boolean isLoaded() {
+        return DataBootstrap.isLoaded();
+    }
+
+    // ---------------- Entities ----------------
+    public static List<Station> getStations() {
+        return Station.getAllStations();
+    }
+
+    public static Station findStation(String name) {
+        return Station.findByName(name);
+    }
+
+    public static List<Bicycle> getBicycles() {
+        return Bicycle.getAllBicycles();
+    }
+
+    public static Bicycle findBicycle(String id) {
+        return Bicycle.findById(id);
+    }
+
+    public static List<User> getUsers() {
+        return User.getAllUsers();
+    }
+
+    public static User findUser(String id) {
+        return User.findById(id);
+    }
+
+    /** ✅ True if any user already has this name (case-insensitive) */
+    public static boolean isUsernameTaken(String username) {
+        if (User.getUserByUsername(username) != null) return true; // exact match, O(1)
+        for (User user : User.getAllUsers()) {
+            if (user.getUsername().equalsIgnoreCase(username)) return true;
+        }
+        return false;
+    }
+
+    public static List<Ride> getRides() {
+        return Ride.getAllRides();
+    }
+
+    // ---------------- Dirty State ----------------
+    /** True while changes are waiting to be written */
+    public static boolean hasUnsavedChanges() {
+        return PersistenceCoordinator.hasPendingWrites();
+    }
+
+    /** Write every pending change now, on the calling thread */
+    public static void saveNow() {
+        PersistenceCoordinator.flushNow();
+    }
+}
@@ -3,6 +3,8 @@ package com.example.unibike_version_4.util;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class FileManager {
 
@@ -10,46 +12,74 @@ public class FileManager {
     private static final Path USER_FILE = Paths.get(System.getProperty("user.dir"), "user.txt");
 
     /**
-     * Check if username already exists
+     * In-memory view of user.txt, built once and then kept current:
+     * saveUser adds to it directly, and edits made to the file by anything
+     * else are picked up by a WatchService and trigger a reload.
      */
-    public static boolean userExists(String username) {
-        try {
-            if (!Files.exists(USER_FILE)) return false;
-            List<String> lines = Files.readAllLines(USER_FILE);
-            for (String line : lines) {
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 2 && parts[1].trim().equalsIgnoreCase(username.trim())) {
-                    return true;
-                }
+    private static class CredentialIndex {
+        // trimmed username -> trimmed password (extra passwords of duplicate lines go to the side map)
+        private final Map<String, String> passwords = new ConcurrentHashMap<>();
+        private final Map<String, List<String>> duplicatePasswords = new ConcurrentHashMap<>();
+        // lower-cased usernames, for the case-insensitive existence check
+        private final Set<String> usernames = ConcurrentHashMap.newKeySet();
+
+        private void add(String username, String password) {
+            usernames.add(username.toLowerCase(Locale.ROOT));
+            String first = passwords.putIfAbsent(username, password);
+            if (first != null && !first.equals(password)) {
+                duplicatePasswords.computeIfAbsent(username, u -> new CopyOnWriteArrayList<>()).add(password);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        return false;
+
+        private boolean matches(String username, String password) {
+            if (password.equals(passwords.get(username))) return true;
+            List<String> others = duplicatePasswords.get(username);
+            return others != null && others.contains(password);
+        }
+    }
+
+    private static final Object lock = new Object();
+    private static volatile CredentialIndex index;
+    private static long knownStamp; // stamp of user.txt as of our last read or write
+    private static WatchService watcher;
+
+    /**
+     * Check if username already exists
+     */
+    public static boolean userExists(String username) {
+        return credentials().usernames.contains(username.trim().toLowerCase(Locale.ROOT));
     }
 
     /**
      * Save a new user with full details
      */
     public static void saveUser(String userId, String username, String email, String password, double balance) {
-        try {
-            // Ensure the file exists
-            Files.createDirectories(USER_FILE.getParent());
-
-            try (BufferedWriter writer = Files.newBufferedWriter(
-                    USER_FILE, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-                writer.write(userId.trim() + "," +
-                        username.trim() + "," +
-                        email.trim() + "," +
-                        password.trim() + "," +
-                        balance);
-                writer.newLine();
-            }
+        credentials(); // make sure the index exists before adding to it
+        synchronized (lock) {
+            try {
+                // Ensure the file exists
+                Files.createDirectories(USER_FILE.getParent());
+
+                try (BufferedWriter writer = Files.newBufferedWriter(
+                        USER_FILE, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    writer.write(userId.trim() + "," +
+                            username.trim() + "," +
+                            email.trim() + "," +
+                            password.trim() + "," +
+                            balance);
+                    writer.newLine();
+                }
+                SyncPolicy.sync(USER_FILE);
 
-            System.out.println("User saved: " + username + " to " + USER_FILE.toAbsolutePath());
+                // Keep the index in step with our own append (the watcher will ignore it)
+                index.add(username.trim(), password.trim());
+                knownStamp = FileStamp.of(USER_FILE);
 
-        } catch (IOException e) {
-            e.printStackTrace();
+                System.out.println("User saved: " + username + " to " + USER_FILE.toAbsolutePath());
+
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
@@ -57,31 +87,94 @@ public class FileManager {
      * Validate username & password for login
      */
     public static boolean validateUser(String username, String password) {
-        try {
-            if (!Files.exists(USER_FILE)) {
-                System.out.println("User file not found: " + USER_FILE.toAbsolutePath());
-                return false;
+        return credentials().matches(username.trim(), password.trim());
+    }
+
+    // ---------------- Credential Index ----------------
+    private static CredentialIndex credentials() {
+        CredentialIndex current = index;
+        if (current != null) return current;
+        synchronized (lock) {
+            if (index == null) {
+                reload();
+                startWatching();
             }
+            return index;
+        }
+    }
+
+    /** Re-read user.txt into a fresh index (caller holds the lock) */
+    private static void reload() {
+        CredentialIndex fresh = new CredentialIndex();
+        knownStamp = FileStamp.of(USER_FILE);
+        if (!Files.exists(USER_FILE)) {
+            System.out.println("User file not found: " + USER_FILE.toAbsolutePath());
+            index = fresh;
+            return;
+        }
+
+        try {
+            CsvTokenizer.forEachRow(USER_FILE, ',', row -> {
+                int fields = row.fieldCount();
+                if (fields >= 2) row.skip();
+                if (fields >= 4) {
+                    String username = row.nextString().trim();
+                    row.skip();
+                    fresh.add(username, row.nextString().trim());
+                } else if (fields >= 2) {
+                    fresh.usernames.add(row.nextString().trim().toLowerCase(Locale.ROOT)); // taken, but cannot log in
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        index = fresh;
+    }
+
+    /** Watch the folder of user.txt and reload when someone else changes the file */
+    private static void startWatching() {
+        try {
+            Path folder = USER_FILE.getParent();
+            Files.createDirectories(folder);
+            watcher = folder.getFileSystem().newWatchService();
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            // Still correct for changes made through saveUser
+            e.printStackTrace();
+            return;
+        }
 
-            List<String> lines = Files.readAllLines(USER_FILE);
-            for (String line : lines) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
+        Thread thread = new Thread(FileManager::watch, "user-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 4) {
-                    String storedUsername = parts[1].trim();
-                    String storedPassword = parts[3].trim();
+    private static void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
 
-                    if (storedUsername.equals(username.trim()) &&
-                            storedPassword.equals(password.trim())) {
-                        return true;
+            boolean touched = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                Object context = event.context();
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || USER_FILE.getFileName().equals(context)) {
+                    touched = true;
+                }
+            }
+            if (touched) {
+                synchronized (lock) {
+                    if (FileStamp.of(USER_FILE) != knownStamp) {
+                        reload();
                     }
                 }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            if (!key.reset()) return;
         }
-        return false;
     }
 }
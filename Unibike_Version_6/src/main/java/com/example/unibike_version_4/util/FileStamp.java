@@ -0,0 +1,43 @@
+package com.example.unibike_version_4.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cheap change detection for data files: size and modification time
+ * folded into one value. Used to tell whether a cache built from a file
+ * (fleet snapshot, credential index) still matches it.
+ */
+public class FileStamp {
+
+    /** Stamp of one file (a missing file has a stamp too) */
+    public static long of(Path file) {
+        return of(List.of(file));
+    }
+
+    /** Stamp of several files together, e.g. a snapshot and its journals */
+    public static long of(Collection<Path> files) {
+        long stamp = 17;
+        for (Path file : files) {
+            long size = -1;
+            long modified = -1;
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                size = attributes.size();
+                modified = attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS);
+            } catch (NoSuchFileException e) {
+                // stays -1
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            stamp = 31 * (31 * stamp + size) + modified;
+        }
+        return stamp;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.unibike_version_4.util;
+
+import com.example.unibike_version_4.model.Bicycle;
+import com.example.unibike_version_4.model.BicycleStatus;
+import com.example.unibike_version_4.model.Station;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Binary copy of the fleet (stations and bicycles) that loads without parsing.
+ *
+ * station.txt and bicycle.txt stay the real data files; this is a cache
+ * built from them. It records a stamp (size and modification time) of the
+ * files it was built from and is only used while those still match, so an
+ * edited or journaled CSV file always wins.
+ *
+ * The file is memory-mapped and read in place. Names are stored once in a
+ * string table and records point at them by ordinal:
+ *
+ *   header    int magic, short version, long station stamp, long bicycle stamp
+ *   strings   int count, then (short length, UTF-8 bytes) per string
+ *   ids       short prefix ordinal, byte digit count   ("B" + 3 digits = B001)
+ *   stations  int count, then per station (8 bytes):
+ *             short name ordinal, int capacity, short location ordinal
+ *   bicycles  int count, then per bicycle (5 bytes):
+ *             short id number, short station ordinal, byte status
+ */
+public class FleetSnapshot {
+    public static final Path FILE_PATH = Paths.get("src/main/resources/com/example/unibike_version_4/data/fleet.bin");
+
+    private static final int MAGIC = 0x55424653; // "UBFS"
+    private static final short VERSION = 1;
+    private static final int STATION_BYTES = 8;
+    private static final int BICYCLE_BYTES = 5;
+    private static final int MAX_ORDINAL = 0xFFFF; // ordinals and id numbers are unsigned shorts
+    private static final BicycleStatus[] STATUSES = BicycleStatus.values();
+
+    private final ByteBuffer buffer;
+    private final long stationStamp;
+    private final long bicycleStamp;
+    private final String[] strings;
+    private final String idPrefix;
+    private final int idDigits;
+    private final int stationCount;
+    private final int stationsOffset;
+    private final int bicycleCount;
+    private final int bicyclesOffset;
+
+    // ---------------- Opening ----------------
+    private FleetSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            throw new IllegalArgumentException("Not a fleet snapshot");
+        }
+        stationStamp = buffer.getLong();
+        bicycleStamp = buffer.getLong();
+
+        strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        idPrefix = strings[Short.toUnsignedInt(buffer.getShort())];
+        idDigits = buffer.get();
+
+        stationCount = buffer.getInt();
+        stationsOffset = buffer.position();
+        buffer.position(stationsOffset + stationCount * STATION_BYTES);
+
+        bicycleCount = buffer.getInt();
+        bicyclesOffset = buffer.position();
+        if (bicycleCount * BICYCLE_BYTES > buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated fleet snapshot");
+        }
+    }
+
+    /** Map the snapshot file; null if it is missing or unreadable */
+    public static FleetSnapshot open(Path path) {
+        if (!Files.exists(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new FleetSnapshot(mapped);
+        } catch (IOException | RuntimeException e) {
+            // Corrupt or half-written: fall back to the CSV files
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public long stationStamp() { return stationStamp; }
+    public long bicycleStamp() { return bicycleStamp; }
+
+    /** Number of interned names; ordinals run from 0 to this - 1 */
+    public int nameCount() {
+        return strings.length;
+    }
+
+    public String name(int ordinal) {
+        return strings[ordinal];
+    }
+
+    // ---------------- Stations ----------------
+    public int stationCount() {
+        return stationCount;
+    }
+
+    public String stationName(int index) {
+        return strings[Short.toUnsignedInt(buffer.getShort(stationsOffset + index * STATION_BYTES))];
+    }
+
+    public int stationCapacity(int index) {
+        return buffer.getInt(stationsOffset + index * STATION_BYTES + 2);
+    }
+
+    public String stationLocation(int index) {
+        return strings[Short.toUnsignedInt(buffer.getShort(stationsOffset + index * STATION_BYTES + 6))];
+    }
+
+    // ---------------- Bicycles ----------------
+    public int bicycleCount() {
+        return bicycleCount;
+    }
+
+    public String bicycleId(int index) {
+        return formatId(idPrefix, idDigits, Short.toUnsignedInt(buffer.getShort(bicyclesOffset + index * BICYCLE_BYTES)));
+    }
+
+    public String bicycleStation(int index) {
+        return strings[bicycleStationOrdinal(index)];
+    }
+
+    /** Ordinal of the bicycle's station name (see name(int)) */
+    public int bicycleStationOrdinal(int index) {
+        return Short.toUnsignedInt(buffer.getShort(bicyclesOffset + index * BICYCLE_BYTES + 2));
+    }
+
+    public BicycleStatus bicycleStatus(int index) {
+        return STATUSES[buffer.get(bicyclesOffset + index * BICYCLE_BYTES + 4)];
+    }
+
+    // ---------------- Writing ----------------
+    /**
+     * Write a new snapshot of the given fleet, stamped with the source files it matches.
+     * Returns false (and removes any old snapshot) if the fleet cannot be stored in
+     * this format, e.g. a bicycle id that is not prefix + number.
+     */
+    public static synchronized boolean write(Path path, long stationStamp, long bicycleStamp,
+                                             List<Station> stations, List<Bicycle> bicycles) {
+        try {
+            ByteBuffer encoded = encode(stationStamp, bicycleStamp, stations, bicycles);
+            if (encoded == null) {
+                Files.deleteIfExists(path);
+                return false;
+            }
+
+            Files.createDirectories(path.getParent());
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (encoded.hasRemaining()) {
+                    channel.write(encoded);
+                }
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static ByteBuffer encode(long stationStamp, long bicycleStamp,
+                                     List<Station> stations, List<Bicycle> bicycles) {
+        // Bicycle ids are stored as a number after a shared prefix
+        String prefix = "";
+        int digits = 0;
+        if (!bicycles.isEmpty()) {
+            String first = bicycles.get(0).getId();
+            int split = first.length();
+            while (split > 0 && Character.isDigit(first.charAt(split - 1))) split--;
+            prefix = first.substring(0, split);
+            digits = first.length() - split;
+        }
+        int[] idNumbers = new int[bicycles.size()];
+        for (int i = 0; i < idNumbers.length; i++) {
+            idNumbers[i] = parseId(bicycles.get(i).getId(), prefix, digits);
+            if (idNumbers[i] < 0) return null;
+        }
+
+        // Intern every name once
+        Map<String, Integer> ordinals = new LinkedHashMap<>();
+        int prefixOrdinal = intern(ordinals, prefix);
+        int[] stationRefs = new int[stations.size() * 2];
+        for (int i = 0; i < stations.size(); i++) {
+            stationRefs[i * 2] = intern(ordinals, stations.get(i).getName());
+            stationRefs[i * 2 + 1] = intern(ordinals, stations.get(i).getLocation());
+        }
+        int[] bicycleRefs = new int[bicycles.size()];
+        for (int i = 0; i < bicycleRefs.length; i++) {
+            bicycleRefs[i] = intern(ordinals, bicycles.get(i).getStationName());
+        }
+        if (ordinals.size() > MAX_ORDINAL + 1) return null;
+
+        List<byte[]> table = new ArrayList<>(ordinals.size());
+        int size = 4 + 2 + 8 + 8 + 4 + 2 + 1 + 4 + stations.size() * STATION_BYTES + 4 + bicycles.size() * BICYCLE_BYTES;
+        for (String value : ordinals.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_ORDINAL) return null;
+            table.add(bytes);
+            size += 2 + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putShort(VERSION).putLong(stationStamp).putLong(bicycleStamp);
+        buffer.putInt(table.size());
+        for (byte[] bytes : table) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        buffer.putShort((short) prefixOrdinal).put((byte) digits);
+
+        buffer.putInt(stations.size());
+        for (int i = 0; i < stations.size(); i++) {
+            buffer.putShort((short) stationRefs[i * 2])
+                    .putInt(stations.get(i).getCapacity())
+                    .putShort((short) stationRefs[i * 2 + 1]);
+        }
+
+        buffer.putInt(bicycles.size());
+        for (int i = 0; i < bicycles.size(); i++) {
+            buffer.putShort((short) idNumbers[i])
+                    .putShort((short) bicycleRefs[i])
+                    .put((byte) bicycles.get(i).getStatus().ordinal());
+        }
+        return buffer.flip();
+    }
+
+    private static int intern(Map<String, Integer> ordinals, String value) {
+        return ordinals.computeIfAbsent(value == null ? "" : value, key -> ordinals.size());
+    }
+
+    /** The number in an id like B001, or -1 if it would not read back as the same id */
+    private static int parseId(String id, String prefix, int digits) {
+        if (id == null || !id.startsWith(prefix) || id.length() == prefix.length()) return -1;
+        int number = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            number = number * 10 + (c - '0');
+            if (number > MAX_ORDINAL) return -1;
+        }
+        return formatId(prefix, digits, number).equals(id) ? number : -1;
+    }
+
+    private static String formatId(String prefix, int digits, int number) {
+        String value = Integer.toString(number);
+        if (value.length() >= digits) return prefix.concat(value);
+
+        StringBuilder id = new StringBuilder(prefix.length() + digits).append(prefix);
+        for (int i = value.length(); i < digits; i++) id.append('0');
+        return id.append(value).toString();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.unibike_version_4.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only file written with group commit.
+ *
+ * Callers queue their lines and wait. Whoever finds no write in progress
+ * becomes the leader: it takes everything queued so far, writes it with
+ * one gathering write and forces it once, then wakes every caller whose
+ * lines were in that batch. Callers arriving meanwhile queue up for the
+ * next batch, so under load one fsync covers many commits.
+ *
+ * With SyncPolicy.NONE nothing is forced; with ALWAYS every commit is
+ * forced on its own (still written by the leader, in queue order).
+ */
+public class GroupCommitWriter implements Closeable {
+    private final Path path;
+    private final SyncPolicy policy;
+
+    private final Object lock = new Object();
+    private Batch open = new Batch(); // where new commits are queued
+    private boolean writing;          // a leader is writing the previous batch
+    private FileChannel channel;      // only used by the leader
+
+    /** Commits written and forced together; also the ticket a caller waits on */
+    public static final class Batch {
+        private final List<byte[]> commits = new ArrayList<>();
+        private boolean done;
+        private IOException failure;
+    }
+
+    // ---------------- Constructor ----------------
+    public GroupCommitWriter(Path path) {
+        this(path, SyncPolicy.current());
+    }
+
+    public GroupCommitWriter(Path path, SyncPolicy policy) {
+        this.path = path;
+        this.policy = policy;
+    }
+
+    // ---------------- Committing ----------------
+    /** Append the lines and return once they are written (and forced, as the policy says) */
+    public void commit(Collection<String> lines) throws IOException {
+        await(enqueue(lines));
+    }
+
+    /**
+     * Queue lines without waiting. Commits reach the file in the order they
+     * were queued, so a caller can queue under its own lock and wait outside it.
+     */
+    public Batch enqueue(Collection<String> lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        synchronized (lock) {
+            if (bytes.length > 0) open.commits.add(bytes); // an empty commit only waits for the ones before it
+            return open;
+        }
+    }
+
+    /** Wait until the batch is on disk, writing it ourselves if no one else is writing */
+    public void await(Batch batch) throws IOException {
+        boolean lead = false;
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (!batch.done && !lead) {
+                if (!writing) {
+                    // Nothing in flight, so the batch is still the open one: take it
+                    writing = true;
+                    open = new Batch();
+                    lead = true;
+                } else {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true; // keep waiting; the lines are already queued
+                    }
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        if (lead) {
+            IOException failure = null;
+            try {
+                write(batch.commits);
+            } catch (IOException e) {
+                failure = e;
+                closeChannel(); // reopen on the next batch
+            }
+            synchronized (lock) {
+                batch.done = true;
+                batch.failure = failure;
+                writing = false;
+                lock.notifyAll();
+            }
+        }
+        if (batch.failure != null) {
+            throw new IOException("Group commit to " + path + " failed", batch.failure);
+        }
+    }
+
+    private void write(List<byte[]> commits) throws IOException {
+        if (commits.isEmpty()) return;
+        if (channel == null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        if (policy == SyncPolicy.ALWAYS) {
+            for (byte[] commit : commits) {
+                ByteBuffer buffer = ByteBuffer.wrap(commit);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            return;
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[commits.size()];
+        long remaining = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(commits.get(i));
+            remaining += buffers[i].remaining();
+        }
+        while (remaining > 0) { // a gathering write may stop part-way through any buffer
+            remaining -= channel.write(buffers);
+        }
+        if (policy == SyncPolicy.BATCH) {
+            channel.force(false);
+        }
+    }
+
+    // ---------------- Closing ----------------
+    /** Close the file once the batch in flight is written (the next commit reopens it) */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            while (writing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            closeChannel();
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.unibike_version_4.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Older user history, one compressed file per day.
+ *
+ * The active history file only keeps today's lines. When the day changes,
+ * seal() moves earlier lines out of it into daily partitions
+ * (history/2025-08-01.hist). Nothing is deleted unless a retention period
+ * is set (unibike.history.retention.days, default 0 = keep all); even then
+ * a seal never deletes the partitions it has just written, so old history
+ * moved on first start is not lost in the same step.
+ *
+ * A partition is a run of GZIP blocks (about BLOCK_BYTES of lines each)
+ * followed by an index and a footer:
+ *
+ *   index   int block count, then per block: long offset, int compressed length
+ *           int user count, then per user: short length + UTF-8 name,
+ *           int block refs, then per ref: int block, int lines of that user
+ *   footer  long index offset, int magic
+ *
+ * page() walks a user's history backwards: it seeks to the blocks that
+ * hold the page and inflates only those.
+ */
+public class HistoryArchive {
+    private static final int DEFAULT_RETENTION_DAYS = 0; // keep all
+    private static final int BLOCK_BYTES = 32 * 1024; // uncompressed lines per block
+    private static final int MAGIC = 0x55424841;     // "UBHA"
+    private static final int FOOTER_BYTES = 12;
+    private static final int CACHED_PARTITIONS = 16;
+    private static final String SUFFIX = ".hist";
+
+    private final Path folder;
+    private final int retentionDays;
+    private TreeSet<LocalDate> days;
+
+    private final Map<LocalDate, Partition> partitions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, Partition> eldest) {
+            return size() > CACHED_PARTITIONS;
+        }
+    };
+
+    /**
+     * Where a page stopped. day is the partition (null = the active file),
+     * block the position in that user's block list, and end how many of
+     * that chunk's entries (oldest first) have not been shown yet.
+     */
+    public record Cursor(LocalDate day, int block, int end) {
+    }
+
+    /** Entries oldest first, and where the next older page starts (null if none) */
+    public record Page(List<String> entries, Cursor older) {
+    }
+
+    // ---------------- Constructor ----------------
+    public HistoryArchive(Path folder) {
+        this(folder, Integer.getInteger("unibike.history.retention.days", DEFAULT_RETENTION_DAYS));
+    }
+
+    public HistoryArchive(Path folder, int retentionDays) {
+        this.folder = folder;
+        this.retentionDays = retentionDays;
+    }
+
+    // ---------------- Sealing ----------------
+    /** Move every line dated before today out of the active file, then apply the retention period (if any) */
+    public synchronized void seal(HistoryIndex active, LocalDate today) {
+        Map<LocalDate, PartitionWriter> writers = new HashMap<>();
+        LocalDate[] lastDay = new LocalDate[1];
+
+        boolean moved = active.extract(new HistoryIndex.LineSink() {
+            @Override
+            public boolean offer(String line) throws IOException {
+                LocalDate day = dayOf(line);
+                if (day == null) day = lastDay[0]; // undated lines stay with the line before
+                lastDay[0] = day;
+                if (day == null || !day.isBefore(today)) return false;
+
+                PartitionWriter writer = writers.get(day);
+                if (writer == null) {
+                    writer = new PartitionWriter(day);
+                    writers.put(day, writer);
+                }
+                writer.add(line);
+                return true;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                for (PartitionWriter writer : writers.values()) {
+                    writer.finish();
+                }
+                for (PartitionWriter writer : writers.values()) {
+                    writer.commit(); // only once every day was written
+                }
+            }
+        });
+        if (!moved) {
+            for (PartitionWriter writer : writers.values()) writer.discard();
+        }
+
+        if (retentionDays > 0) {
+            LocalDate oldestKept = today.minusDays(retentionDays);
+            for (LocalDate day : new ArrayList<>(days())) {
+                if (day.isBefore(oldestKept) && !(moved && writers.containsKey(day))) delete(day);
+            }
+        }
+    }
+
+    private void delete(LocalDate day) {
+        try {
+            Files.deleteIfExists(pathOf(day));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        days().remove(day);
+        partitions.remove(day);
+    }
+
+    // ---------------- Paging ----------------
+    /** Up to size entries of one user older than the cursor (null = start from the newest) */
+    public synchronized Page page(HistoryIndex active, String username, Cursor before, int size) {
+        Deque<String> collected = new ArrayDeque<>();
+        Cursor at = (before != null) ? before : new Cursor(null, 0, Integer.MAX_VALUE);
+
+        while (at != null && collected.size() < size) {
+            List<String> chunk = (at.day() == null)
+                    ? active.entries(username)
+                    : partition(at.day()).entries(username, at.block());
+            int end = Math.min(at.end(), chunk.size());
+            int from = Math.max(0, end - (size - collected.size()));
+            for (int i = end - 1; i >= from; i--) {
+                collected.addFirst(chunk.get(i));
+            }
+            at = (from > 0) ? new Cursor(at.day(), at.block(), from) : previous(at, username);
+        }
+        return new Page(new ArrayList<>(collected), at);
+    }
+
+    /** The newest chunk of the user's history that is older than the given one */
+    private Cursor previous(Cursor at, String username) {
+        if (at.day() != null && at.block() > 0) {
+            return new Cursor(at.day(), at.block() - 1, Integer.MAX_VALUE);
+        }
+        NavigableSet<LocalDate> older = (at.day() == null) ? days().descendingSet() : days().headSet(at.day(), false).descendingSet();
+        for (LocalDate day : older) {
+            int blocks = partition(day).blockCount(username);
+            if (blocks > 0) return new Cursor(day, blocks - 1, Integer.MAX_VALUE);
+        }
+        return null;
+    }
+
+    // ---------------- Partitions ----------------
+    private TreeSet<LocalDate> days() {
+        if (days != null) return days;
+        days = new TreeSet<>();
+        if (!Files.isDirectory(folder)) return days;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    days.add(LocalDate.parse(name.substring(0, name.length() - SUFFIX.length())));
+                } catch (DateTimeParseException ignored) {
+                    // not ours
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return days;
+    }
+
+    private Partition partition(LocalDate day) {
+        Partition partition = partitions.get(day);
+        if (partition == null) {
+            partition = new Partition(pathOf(day));
+            partitions.put(day, partition);
+        }
+        return partition;
+    }
+
+    private Path pathOf(LocalDate day) {
+        return folder.resolve(day + SUFFIX);
+    }
+
+    /** "username|- 2025-08-01 22:28:20 - ..." -> 2025-08-01, or null if the line has no date */
+    private static LocalDate dayOf(String line) {
+        int start = line.indexOf('|') + 1;
+        while (start < line.length() && (line.charAt(start) == '-' || line.charAt(start) == ' ')) start++;
+        if (start + 10 > line.length()) return null;
+        try {
+            return LocalDate.parse(line.substring(start, start + 10));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String usernameOf(String line) {
+        int bar = line.indexOf('|');
+        return bar < 0 ? "" : line.substring(0, bar).trim();
+    }
+
+    private static String entryOf(String line) {
+        return line.substring(line.indexOf('|') + 1).trim();
+    }
+
+    /** A sealed day, read through its index */
+    private static class Partition {
+        private final Path path;
+        private long[] offsets = new long[0];
+        private int[] lengths = new int[0];
+        private final Map<String, int[]> blocksByUser = new HashMap<>(); // user -> block numbers
+
+        private Partition(Path path) {
+            this.path = path;
+            if (!Files.exists(path)) return;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer footer = read(channel, channel.size() - FOOTER_BYTES, FOOTER_BYTES);
+                long indexOffset = footer.getLong();
+                if (footer.getInt() != MAGIC) throw new IOException("Not a history partition: " + path);
+                ByteBuffer index = read(channel, indexOffset, (int) (channel.size() - FOOTER_BYTES - indexOffset));
+
+                int blocks = index.getInt();
+                offsets = new long[blocks];
+                lengths = new int[blocks];
+                for (int i = 0; i < blocks; i++) {
+                    offsets[i] = index.getLong();
+                    lengths[i] = index.getInt();
+                }
+                int users = index.getInt();
+                for (int u = 0; u < users; u++) {
+                    byte[] name = new byte[Short.toUnsignedInt(index.getShort())];
+                    index.get(name);
+                    int[] refs = new int[index.getInt()];
+                    for (int r = 0; r < refs.length; r++) {
+                        refs[r] = index.getInt();
+                        index.getInt(); // line count, not needed for paging
+                    }
+                    blocksByUser.put(new String(name, StandardCharsets.UTF_8), refs);
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace(); // unreadable: treat the day as empty
+                offsets = new long[0];
+                lengths = new int[0];
+                blocksByUser.clear();
+            }
+        }
+
+        private int blockCount(String username) {
+            int[] refs = blocksByUser.get(username);
+            return refs == null ? 0 : refs.length;
+        }
+
+        /** The user's entries in their n-th block (only that block is inflated) */
+        private List<String> entries(String username, int n) {
+            List<String> entries = new ArrayList<>();
+            int[] refs = blocksByUser.get(username);
+            if (refs == null || n >= refs.length) return entries;
+
+            int block = refs[n];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer compressed = read(channel, offsets[block], lengths[block]);
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(new ByteArrayInputStream(compressed.array())), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (usernameOf(line).equals(username)) entries.add(entryOf(line));
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return entries;
+        }
+
+        /** Every line in the partition, in order (used when a sealed day gets late lines) */
+        private List<String> allLines() {
+            List<String> lines = new ArrayList<>();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                for (int block = 0; block < offsets.length; block++) {
+                    ByteBuffer compressed = read(channel, offsets[block], lengths[block]);
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            new GZIPInputStream(new ByteArrayInputStream(compressed.array())), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) lines.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return lines;
+        }
+
+        private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) throw new EOFException();
+            }
+            return buffer.flip();
+        }
+    }
+
+    /** Builds one day's partition in a temp file, a block at a time */
+    private class PartitionWriter {
+        private final LocalDate day;
+        private final Path tmp;
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+        private final Map<String, Integer> linesInBlock = new LinkedHashMap<>();
+        private final List<long[]> blocks = new ArrayList<>();                // {offset, length}
+        private final Map<String, List<int[]>> refs = new LinkedHashMap<>();   // user -> {block, lines}
+        private long written;
+
+        private PartitionWriter(LocalDate day) throws IOException {
+            this.day = day;
+            this.tmp = folder.resolve(day + SUFFIX + ".tmp");
+            Files.createDirectories(folder);
+            Files.deleteIfExists(tmp);
+
+            // A day that was already sealed gets its old lines first
+            if (days().contains(day)) {
+                for (String line : partition(day).allLines()) add(line);
+            }
+        }
+
+        private void add(String line) throws IOException {
+            block.write(line.getBytes(StandardCharsets.UTF_8));
+            block.write('\n');
+            linesInBlock.merge(usernameOf(line), 1, Integer::sum);
+            if (block.size() >= BLOCK_BYTES) flushBlock();
+        }
+
+        private void flushBlock() throws IOException {
+            if (block.size() == 0) return;
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(block.size() / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                block.writeTo(gzip);
+            }
+            append(compressed.toByteArray());
+
+            int number = blocks.size();
+            blocks.add(new long[]{written - compressed.size(), compressed.size()});
+            for (Map.Entry<String, Integer> entry : linesInBlock.entrySet()) {
+                refs.computeIfAbsent(entry.getKey(), u -> new ArrayList<>()).add(new int[]{number, entry.getValue()});
+            }
+            block.reset();
+            linesInBlock.clear();
+        }
+
+        private void append(byte[] bytes) throws IOException {
+            try (OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(bytes);
+            }
+            written += bytes.length;
+        }
+
+        private void finish() throws IOException {
+            flushBlock();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(bytes);
+            index.writeInt(blocks.size());
+            for (long[] b : blocks) {
+                index.writeLong(b[0]);
+                index.writeInt((int) b[1]);
+            }
+            index.writeInt(refs.size());
+            for (Map.Entry<String, List<int[]>> entry : refs.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                index.writeShort(name.length);
+                index.write(name);
+                index.writeInt(entry.getValue().size());
+                for (int[] ref : entry.getValue()) {
+                    index.writeInt(ref[0]);
+                    index.writeInt(ref[1]);
+                }
+            }
+            index.writeLong(written); // footer: where the index starts
+            index.writeInt(MAGIC);
+            append(bytes.toByteArray());
+        }
+
+        private void commit() throws IOException {
+            SyncPolicy.sync(tmp); // the lines leave the active file right after this
+            Path target = pathOf(day);
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            days().add(day);
+            partitions.remove(day);
+        }
+
+        private void discard() {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.unibike_version_4.util;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * User history that stays on disk until someone asks for it.
+ *
+ * userhistory.txt keeps one "username|entry" line per event. Instead of
+ * reading it into memory, only the position of each line is kept, per
+ * username, and one user's entries are read when needed. The most
+ * recently used users' entries are held in a small LRU cache.
+ *
+ * The positions are also saved in a sidecar file (userhistory.txt.idx), so
+ * a restart only has to scan the lines appended since the last run.
+ * Lines are appended through a GroupCommitWriter, which keeps the file
+ * open between flushes and forces it as the SyncPolicy says.
+ *
+ * Sidecar format:  int magic, then per line: int user ordinal, long position
+ * Users are numbered in order of first appearance; the record that first
+ * uses an ordinal carries the username (short length + UTF-8 bytes)
+ * between the two fields. A
+ * position packs the line's byte offset (high 40 bits) and length
+ * including the line break (low 24 bits).
+ */
+public class HistoryIndex {
+    private static final int DEFAULT_CACHE_SIZE = 64; // users
+    private static final int MAGIC = 0x55424849;     // "UBHI"
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final int SCAN_BUFFER = 64 * 1024;
+
+    private final Path historyPath;
+    private final Path indexPath;
+    private final GroupCommitWriter writer; // closed before extract() replaces the file
+
+    // username -> ordinal, and ordinal -> positions of that user's lines, in file order
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Positions> positions = new ArrayList<>();
+    private int namesInSidecar;
+    private long indexedLength; // bytes of the history file covered by the index
+    private boolean opened;
+
+    private final Map<String, List<String>> cache;
+
+    /** Receives lines moved out of the history file (see extract) */
+    public interface LineSink {
+        /** Return true to take the line out of the file */
+        boolean offer(String line) throws IOException;
+
+        /** Called once all lines were offered; the file is only rewritten if this succeeds */
+        void finish() throws IOException;
+    }
+
+    private static class Positions {
+        private long[] values = new long[4];
+        private int size;
+
+        private void add(long position) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = position;
+        }
+    }
+
+    // ---------------- Constructor ----------------
+    public HistoryIndex(Path historyPath) {
+        this(historyPath, Integer.getInteger("unibike.history.cache.users", DEFAULT_CACHE_SIZE));
+    }
+
+    public HistoryIndex(Path historyPath, int cacheSize) {
+        this.historyPath = historyPath;
+        this.indexPath = historyPath.resolveSibling(historyPath.getFileName() + ".idx");
+        this.writer = new GroupCommitWriter(historyPath);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // ---------------- Opening ----------------
+    /** Load the sidecar and index any lines appended after it (re-scans everything if it does not fit) */
+    public synchronized void open() {
+        reset();
+        cache.clear();
+        opened = true;
+
+        try {
+            long fileLength = Files.exists(historyPath) ? Files.size(historyPath) : 0;
+            if (!readSidecar(fileLength)) {
+                reset();
+                Files.deleteIfExists(indexPath);
+            }
+            if (indexedLength < fileLength) {
+                indexTail();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean readSidecar(long fileLength) throws IOException {
+        if (!Files.exists(indexPath)) return false;
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 4 || in.getInt() != MAGIC) return false;
+            while (in.hasRemaining()) {
+                int ordinal = in.getInt();
+                if (ordinal == names.size()) {
+                    byte[] username = new byte[Short.toUnsignedInt(in.getShort())];
+                    in.get(username);
+                    ordinalOf(new String(username, StandardCharsets.UTF_8));
+                } else if (ordinal < 0 || ordinal > names.size()) {
+                    return false;
+                }
+                long position = in.getLong();
+                positions.get(ordinal).add(position);
+                indexedLength = end(position);
+            }
+            namesInSidecar = names.size();
+        } catch (BufferUnderflowException e) {
+            return false; // torn last record
+        }
+        // The history file must still contain everything the sidecar points at
+        return indexedLength <= fileLength && endsLine(indexedLength);
+    }
+
+    /** Scan the history file from indexedLength to the end, adding every complete line */
+    private void indexTail() throws IOException {
+        Positions addedOrdinals = new Positions(); // reused as a plain growable list here
+        Positions added = new Positions();
+
+        try (InputStream in = Files.newInputStream(historyPath)) {
+            in.skipNBytes(indexedLength);
+            byte[] buffer = new byte[SCAN_BUFFER];
+            ByteArrayOutputStream name = new ByteArrayOutputStream();
+            long lineStart = indexedLength;
+            long offset = indexedLength;
+            boolean inName = true;
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                int nameFrom = 0;
+                for (int i = 0; i < count; i++) {
+                    byte b = buffer[i];
+                    if (inName && b == '|') {
+                        name.write(buffer, nameFrom, i - nameFrom);
+                        inName = false;
+                    } else if (b == '\n') {
+                        long end = offset + i + 1;
+                        if (!inName) { // lines without a username are skipped, as before
+                            int ordinal = ordinalOf(name.toString(StandardCharsets.UTF_8).trim());
+                            long position = pack(lineStart, end - lineStart);
+                            positions.get(ordinal).add(position);
+                            addedOrdinals.add(ordinal);
+                            added.add(position);
+                        }
+                        name.reset();
+                        inName = true;
+                        nameFrom = i + 1;
+                        lineStart = end;
+                    }
+                }
+                if (inName) name.write(buffer, nameFrom, count - nameFrom); // name continues in the next chunk
+                offset += count;
+            }
+            indexedLength = lineStart; // a trailing partial line is picked up next time
+        }
+        writeSidecar(addedOrdinals, added);
+    }
+
+    // ---------------- Reading ----------------
+    /** All history entries of one user, oldest first */
+    public synchronized List<String> entries(String username) {
+        if (!opened) open();
+        List<String> cached = cache.get(username);
+        if (cached != null) return new ArrayList<>(cached);
+
+        List<String> loaded = new ArrayList<>();
+        Integer ordinal = ordinals.get(username);
+        if (ordinal != null) {
+            Positions own = positions.get(ordinal);
+            try (FileChannel channel = FileChannel.open(historyPath, StandardOpenOption.READ)) {
+                for (int i = 0; i < own.size; i++) {
+                    loaded.add(entryOf(readLine(channel, own.values[i])));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        cache.put(username, loaded);
+        return new ArrayList<>(loaded);
+    }
+
+    private static String readLine(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (position & LENGTH_MASK));
+        long offset = position >>> LENGTH_BITS;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) break;
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    /** "username|entry\n" -> "entry" */
+    private static String entryOf(String line) {
+        int bar = line.indexOf('|');
+        return line.substring(bar + 1).trim();
+    }
+
+    // ---------------- Appending ----------------
+    /** Append "username|entry" lines with one write, indexing them as they go */
+    public synchronized void appendAll(List<String> lines) {
+        if (lines.isEmpty()) return;
+        if (!opened) open();
+
+        Positions addedOrdinals = new Positions();
+        Positions added = new Positions();
+        long start;
+        int[] lengths = new int[lines.size()];
+        try {
+            // This index is the only writer in the process, and it holds the lock: the lines start at the end
+            start = Files.exists(historyPath) ? Files.size(historyPath) : 0;
+            if (start > indexedLength) {
+                indexTail(); // someone else appended; index their lines first
+            }
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = (lines.get(i) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8).length;
+            }
+            writer.commit(lines); // one write, forced as the SyncPolicy says
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        // Written: index the new lines
+        long offset = start;
+        for (int i = 0; i < lengths.length; i++) {
+            String line = lines.get(i);
+            int ordinal = ordinalOf(line.substring(0, Math.max(0, line.indexOf('|'))).trim());
+            long position = pack(offset, lengths[i]);
+            offset += lengths[i];
+            positions.get(ordinal).add(position);
+            addedOrdinals.add(ordinal);
+            added.add(position);
+
+            List<String> cached = cache.get(names.get(ordinal));
+            if (cached != null) cached.add(entryOf(line));
+        }
+        indexedLength = offset;
+
+        try {
+            writeSidecar(addedOrdinals, added);
+        } catch (IOException e) {
+            e.printStackTrace(); // the next open() re-scans what the sidecar is missing
+        }
+    }
+
+    // ---------------- Rotation ----------------
+    /**
+     * Offer every line to the sink and rewrite the file without the lines it took.
+     * Returns true if anything was moved out.
+     */
+    public synchronized boolean extract(LineSink sink) {
+        if (!Files.exists(historyPath)) return false;
+        Path tmp = historyPath.resolveSibling(historyPath.getFileName() + ".tmp");
+        boolean moved = false;
+        try {
+            try (BufferedReader reader = Files.newBufferedReader(historyPath);
+                 BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (sink.offer(line)) {
+                        moved = true;
+                    } else {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                }
+            }
+            if (moved) {
+                sink.finish();
+                SyncPolicy.sync(tmp);
+                writer.close(); // the next append opens the new file
+                try {
+                    Files.move(tmp, historyPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, historyPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.deleteIfExists(indexPath); // positions changed
+                open();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            moved = false;
+        } finally {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+        return moved;
+    }
+
+    // ---------------- Helpers ----------------
+    private void reset() {
+        ordinals.clear();
+        names.clear();
+        positions.clear();
+        namesInSidecar = 0;
+        indexedLength = 0;
+    }
+
+    private int ordinalOf(String username) {
+        Integer ordinal = ordinals.get(username);
+        if (ordinal != null) return ordinal;
+        ordinals.put(username, names.size());
+        names.add(username);
+        positions.add(new Positions());
+        return names.size() - 1;
+    }
+
+    private void writeSidecar(Positions addedOrdinals, Positions added) throws IOException {
+        if (added.size == 0 && Files.exists(indexPath)) return;
+        boolean fresh = !Files.exists(indexPath);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            if (fresh) out.writeInt(MAGIC);
+            for (int i = 0; i < added.size; i++) {
+                int ordinal = (int) addedOrdinals.values[i];
+                out.writeInt(ordinal);
+                if (ordinal == namesInSidecar) {
+                    byte[] username = names.get(ordinal).getBytes(StandardCharsets.UTF_8); // first use of this ordinal
+                    out.writeShort(username.length);
+                    out.write(username);
+                    namesInSidecar++;
+                }
+                out.writeLong(added.values[i]);
+            }
+        }
+    }
+
+    private boolean endsLine(long length) throws IOException {
+        if (length == 0) return true;
+        try (FileChannel channel = FileChannel.open(historyPath, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.read(last, length - 1) == 1 && last.get(0) == '\n';
+        }
+    }
+
+    private static long pack(long offset, long length) {
+        if (length > LENGTH_MASK) throw new IllegalArgumentException("History line too long: " + length + " bytes");
+        return (offset << LENGTH_BITS) | length;
+    }
+
+    private static long end(long position) {
+        return (position >>> LENGTH_BITS) + (position & LENGTH_MASK);
+    }
+}
@@ -0,0 +1,753 @@
+package com.example.unibike_version_4.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Embedded log-structured key-value store for CSV records.
+ *
+ * Writes go to a write-ahead log (group-committed) and to a sorted
+ * in-memory table. Once the table passes its size limit it is frozen and
+ * written on a background thread as an immutable sorted run: blocks of
+ * entries, a sparse index holding the first key of every block, and a
+ * bloom filter. A lookup checks the tables, then the runs newest to
+ * oldest, skipping every run whose bloom filter rules the key out, and
+ * reads at most one block per run. When there are too many runs they are
+ * merged into one in the background, dropping overwritten values and
+ * tombstones.
+ *
+ * The MANIFEST lists the live runs (oldest first) and the newest WAL whose
+ * contents are already in a run. It is replaced atomically, so a crash at
+ * any point leaves the previous consistent state.
+ *
+ * Files:  MANIFEST, wal-<n>.log, run-<n>.sst
+ * WAL line format:  +<tab><key><tab><value>   (put)
+ *                   -<tab><key>               (removal)
+ */
+public class LsmRepository implements Repository<String, String> {
+    private static final long DEFAULT_MEMTABLE_BYTES = Long.getLong("unibike.lsm.memtable.bytes", 4 * 1024 * 1024);
+    private static final int DEFAULT_MERGE_AFTER = 4; // runs
+    private static final int BLOCK_BYTES = 4096;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+    private static final int BLOOM_HASHES = 7;
+    private static final int RUN_MAGIC = 0x55424C53; // "UBLS"
+    private static final String MANIFEST = "MANIFEST";
+    private static final String WAL_PREFIX = "wal-";
+    private static final String RUN_PREFIX = "run-";
+
+    // Marks a removed key in the tables and in lookup results (compared by identity)
+    private static final String TOMBSTONE = new String("-");
+
+    private final Path directory;
+    private final long memtableBytes;
+    private final int mergeAfter;
+
+    private final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "lsm-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private boolean opened;
+    private TreeMap<String, String> memtable = new TreeMap<>();
+    private long memtableSize;
+    private final Deque<Frozen> frozen = new ArrayDeque<>(); // oldest first, waiting to become runs
+    private final List<Run> runs = new ArrayList<>();        // oldest first
+    private long walNumber;
+    private long flushedWal = -1; // newest WAL already in a run
+    private GroupCommitWriter wal;
+    private long nextRun;
+    private boolean merging;
+
+    /** A table that no longer takes writes, and the WAL that covers it */
+    private static final class Frozen {
+        private final TreeMap<String, String> table;
+        private final long walNumber;
+        private final GroupCommitWriter wal;
+
+        private Frozen(TreeMap<String, String> table, long walNumber, GroupCommitWriter wal) {
+            this.table = table;
+            this.walNumber = walNumber;
+            this.wal = wal;
+        }
+    }
+
+    // ---------------- Constructor ----------------
+    public LsmRepository(Path directory) {
+        this(directory, DEFAULT_MEMTABLE_BYTES, DEFAULT_MERGE_AFTER);
+    }
+
+    public LsmRepository(Path directory, long memtableBytes, int mergeAfter) {
+        this.directory = directory;
+        this.memtableBytes = memtableBytes;
+        this.mergeAfter = mergeAfter;
+    }
+
+    // ---------------- Reads ----------------
+    @Override
+    public synchronized String get(String key) {
+        open();
+        String value = memtable.get(key);
+        if (value == null) {
+            Iterator<Frozen> newestFirst = frozen.descendingIterator();
+            while (value == null && newestFirst.hasNext()) {
+                value = newestFirst.next().table.get(key);
+            }
+        }
+        try {
+            for (int i = runs.size() - 1; value == null && i >= 0; i--) {
+                value = runs.get(i).get(key);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return value == TOMBSTONE ? null : value;
+    }
+
+    /** Every live value in key order (one merged pass over the tables and runs) */
+    @Override
+    public synchronized List<String> values() {
+        open();
+        List<String> values = new ArrayList<>();
+        try {
+            Iterator<Map.Entry<String, String>> entries = merged(sourcesNewestFirst(), true);
+            while (entries.hasNext()) values.add(entries.next().getValue());
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+        }
+        return values;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        open();
+        return memtable.isEmpty() && frozen.isEmpty() && runs.isEmpty();
+    }
+
+    // ---------------- Writes ----------------
+    @Override
+    public void put(String key, String value) {
+        write(Collections.singletonMap(key, value));
+    }
+
+    @Override
+    public void putAll(Map<String, String> entries) {
+        if (!entries.isEmpty()) write(entries);
+    }
+
+    @Override
+    public void remove(String key) {
+        write(Collections.singletonMap(key, TOMBSTONE));
+    }
+
+    @Override
+    public void update(Map<String, String> entries, Collection<String> removed) {
+        Map<String, String> changes = new LinkedHashMap<>(entries);
+        for (String key : removed) changes.put(key, TOMBSTONE);
+        if (!changes.isEmpty()) write(changes);
+    }
+
+    /** Apply the changes in memory, then wait for their WAL lines to be committed */
+    private void write(Map<String, String> changes) {
+        GroupCommitWriter log;
+        GroupCommitWriter.Batch batch;
+        synchronized (this) {
+            open();
+            List<String> lines = new ArrayList<>(changes.size());
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                String key = change.getKey();
+                String value = change.getValue();
+                lines.add(value == TOMBSTONE ? "-\t" + key : "+\t" + key + "\t" + value);
+                memtable.put(key, value);
+                memtableSize += 64 + 2L * (key.length() + value.length());
+            }
+            log = wal;
+            batch = wal.enqueue(lines); // queued under the lock, so the WAL keeps write order
+            if (memtableSize >= memtableBytes) freeze();
+        }
+
+        try {
+            log.await(batch);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Replace the whole store with one run holding the given entries */
+    @Override
+    public synchronized void rewrite(Map<String, String> entries) {
+        open();
+        try {
+            Run run = Run.write(runPath(nextRun++), new TreeMap<>(entries).entrySet().iterator(), false);
+            List<Run> old = new ArrayList<>(runs);
+            List<Frozen> dropped = new ArrayList<>(frozen);
+            GroupCommitWriter lastLog = wal;
+            long lastWal = walNumber;
+
+            runs.clear();
+            runs.add(run);
+            frozen.clear();
+            memtable = new TreeMap<>();
+            memtableSize = 0;
+            openWal(walNumber + 1);
+            flushedWal = lastWal; // everything up to here is in the new run
+            writeManifest();
+
+            lastLog.close();
+            for (Run r : old) r.delete();
+            for (Frozen f : dropped) Files.deleteIfExists(walPath(f.walNumber));
+            Files.deleteIfExists(walPath(lastWal));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ---------------- Flushing ----------------
+    /** Hand the memtable to the background writer and start a new one (with a new WAL) */
+    private void freeze() {
+        frozen.addLast(new Frozen(memtable, walNumber, wal));
+        memtable = new TreeMap<>();
+        memtableSize = 0;
+        openWal(walNumber + 1);
+        background.execute(this::flushFrozen);
+    }
+
+    /** Write frozen tables as runs, oldest first; a failed one stays in memory and is retried next time */
+    private void flushFrozen() {
+        while (true) {
+            Frozen next;
+            long id;
+            synchronized (this) {
+                next = frozen.peekFirst();
+                if (next == null) break;
+                id = nextRun++;
+            }
+            try {
+                next.wal.commit(List.of()); // waits for every write queued on that WAL
+                next.wal.close();
+                Run run = Run.write(runPath(id), next.table.entrySet().iterator(), true);
+                synchronized (this) {
+                    if (frozen.peekFirst() != next) { // dropped by a rewrite meanwhile
+                        run.delete();
+                        continue;
+                    }
+                    frozen.removeFirst();
+                    runs.add(run);
+                    flushedWal = frozen.isEmpty() ? walNumber - 1 : frozen.peekFirst().walNumber - 1;
+                    writeManifest();
+                }
+                Files.deleteIfExists(walPath(next.walNumber));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+        mergeRuns();
+    }
+
+    // ---------------- Merging ----------------
+    /** Merge runs of similar size until no tier holds too many (runs flushed meanwhile stay on top) */
+    private void mergeRuns() {
+        while (true) {
+            List<Run> inputs;
+            int start;
+            long id;
+            synchronized (this) {
+                if (merging) return;
+                start = tierStart();
+                if (runs.size() - start < mergeAfter) return;
+                merging = true;
+                inputs = new ArrayList<>(runs.subList(start, runs.size()));
+                id = nextRun++;
+            }
+
+            Run merged = null;
+            try {
+                // Tombstones can only go once the oldest run takes part: nothing older is left to hide
+                List<Iterator<Map.Entry<String, String>>> sources = new ArrayList<>();
+                for (int i = inputs.size() - 1; i >= 0; i--) sources.add(inputs.get(i).iterator());
+                merged = Run.write(runPath(id), merged(sources, start == 0), start != 0);
+
+                synchronized (this) {
+                    int end = start + inputs.size();
+                    if (runs.size() >= end && runs.subList(start, end).equals(inputs)) {
+                        runs.subList(start, end).clear();
+                        runs.add(start, merged);
+                        writeManifest();
+                        merged = null;
+                    } else {
+                        inputs = List.of(); // replaced by a rewrite meanwhile
+                    }
+                }
+                for (Run r : inputs) r.delete();
+            } catch (IOException | UncheckedIOException e) {
+                e.printStackTrace();
+                return;
+            } finally {
+                if (merged != null) merged.delete();
+                synchronized (this) {
+                    merging = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * First run of the newest tier: walking from the newest run back, a run
+     * joins while it is at most twice the size of everything newer. Each
+     * merge about doubles a run, so every entry is rewritten O(log n) times.
+     */
+    private int tierStart() {
+        int start = runs.size();
+        long newer = 0;
+        while (start > 0) {
+            long size = runs.get(start - 1).size();
+            if (start < runs.size() && size > 2 * newer) break;
+            newer += size;
+            start--;
+        }
+        return start;
+    }
+
+    /** Next entry of one merge source; lower source numbers are newer */
+    private record Head(Map.Entry<String, String> entry, int source) {
+    }
+
+    /**
+     * K-way merge of sorted sources given newest first: every key comes out
+     * once, with its newest value (tombstones left out if asked). Streams,
+     * so merging runs never holds more than one entry per source.
+     */
+    private static Iterator<Map.Entry<String, String>> merged(List<Iterator<Map.Entry<String, String>>> sources,
+                                                             boolean skipTombstones) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator
+                .comparing((Head h) -> h.entry().getKey())
+                .thenComparingInt(Head::source));
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).hasNext()) heads.add(new Head(sources.get(i).next(), i));
+        }
+
+        return new Iterator<>() {
+            private Map.Entry<String, String> next = advance();
+
+            private Map.Entry<String, String> advance() {
+                while (!heads.isEmpty()) {
+                    Head head = heads.poll();
+                    String key = head.entry().getKey();
+                    // Older values of the same key are shadowed: skip them
+                    while (!heads.isEmpty() && heads.peek().entry().getKey().equals(key)) {
+                        refill(heads.poll().source());
+                    }
+                    refill(head.source());
+                    if (!(skipTombstones && head.entry().getValue() == TOMBSTONE)) return head.entry();
+                }
+                return null;
+            }
+
+            private void refill(int source) {
+                if (sources.get(source).hasNext()) heads.add(new Head(sources.get(source).next(), source));
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, String> next() {
+                if (next == null) throw new NoSuchElementException();
+                Map.Entry<String, String> current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    private List<Iterator<Map.Entry<String, String>>> sourcesNewestFirst() {
+        List<Iterator<Map.Entry<String, String>>> sources = new ArrayList<>();
+        sources.add(memtable.entrySet().iterator());
+        Iterator<Frozen> newestFirst = frozen.descendingIterator();
+        while (newestFirst.hasNext()) sources.add(newestFirst.next().table.entrySet().iterator());
+        for (int i = runs.size() - 1; i >= 0; i--) sources.add(runs.get(i).iterator());
+        return sources;
+    }
+
+    // ---------------- Opening ----------------
+    /** Read the manifest, open its runs and replay any WAL not in a run yet */
+    private void open() {
+        if (opened) return;
+        opened = true;
+        try {
+            Files.createDirectories(directory);
+            Set<String> live = new HashSet<>();
+            Path manifest = directory.resolve(MANIFEST);
+            if (Files.exists(manifest)) {
+                List<String> lines = Files.readAllLines(manifest);
+                flushedWal = Long.parseLong(lines.get(0).trim());
+                for (String name : lines.subList(1, lines.size())) {
+                    if (name.isBlank()) continue;
+                    runs.add(Run.open(directory.resolve(name.trim())));
+                    live.add(name.trim());
+                    nextRun = Math.max(nextRun, numberOf(name.trim(), RUN_PREFIX) + 1);
+                }
+            }
+
+            // Left over from a crash: unfinished runs, merged-away runs and temp files
+            for (Path p : list(RUN_PREFIX)) {
+                if (!live.contains(p.getFileName().toString())) Files.deleteIfExists(p);
+            }
+            for (Path p : list("")) {
+                if (p.getFileName().toString().endsWith(".tmp")) Files.deleteIfExists(p);
+            }
+
+            List<Path> wals = list(WAL_PREFIX);
+            long lastWal = flushedWal;
+            for (Path p : wals) {
+                long number = numberOf(p.getFileName().toString(), WAL_PREFIX);
+                if (number > flushedWal) replay(p);
+                lastWal = Math.max(lastWal, number);
+            }
+            if (!memtable.isEmpty()) {
+                // Make the replayed writes a run now, so the old WALs can go
+                runs.add(Run.write(runPath(nextRun++), memtable.entrySet().iterator(), true));
+                memtable = new TreeMap<>();
+                memtableSize = 0;
+            }
+            flushedWal = lastWal;
+            openWal(lastWal + 1);
+            writeManifest();
+            for (Path p : wals) Files.deleteIfExists(p);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            if (wal == null) openWal(walNumber + 1);
+        }
+    }
+
+    /** Apply one WAL to the memtable; a torn last line (no line end) is ignored */
+    private void replay(Path walFile) throws IOException {
+        byte[] bytes = Files.readAllBytes(walFile);
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') continue;
+            int end = (i > start && bytes[i - 1] == '\r') ? i - 1 : i;
+            String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            start = i + 1;
+
+            int tab = line.indexOf('\t', 2);
+            if (line.startsWith("+\t") && tab > 0) {
+                memtable.put(line.substring(2, tab), line.substring(tab + 1));
+            } else if (line.startsWith("-\t")) {
+                memtable.put(line.substring(2), TOMBSTONE);
+            }
+        }
+    }
+
+    private void openWal(long number) {
+        walNumber = number;
+        wal = new GroupCommitWriter(walPath(number));
+    }
+
+    private void writeManifest() throws IOException {
+        StringBuilder text = new StringBuilder().append(flushedWal).append(System.lineSeparator());
+        for (Run run : runs) text.append(run.path.getFileName()).append(System.lineSeparator());
+
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        Files.writeString(tmp, text);
+        SyncPolicy.sync(tmp);
+        moveReplacing(tmp, directory.resolve(MANIFEST));
+    }
+
+    // ---------------- Helpers ----------------
+    private Path walPath(long number) {
+        return directory.resolve(String.format("%s%08d.log", WAL_PREFIX, number));
+    }
+
+    private Path runPath(long number) {
+        return directory.resolve(String.format("%s%08d.sst", RUN_PREFIX, number));
+    }
+
+    private static long numberOf(String name, String prefix) {
+        return Long.parseLong(name.substring(prefix.length(), name.indexOf('.')));
+    }
+
+    private List<Path> list(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> p.getFileName().toString().startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ---------------- Runs ----------------
+    /**
+     * One immutable sorted run.
+     *
+     * Layout:  entries (key order, in blocks of ~4 KB)
+     *          index   int blocks, then per block: int key length, key, long offset
+     *          bloom   int longs, long[] bits
+     *          footer  long index offset, long bloom offset, int magic
+     * Entry:   int key length, key, byte 1 = value / 0 = tombstone, [int length, value]
+     */
+    private static final class Run {
+        private final Path path;
+        private final FileChannel channel;
+        private final String[] firstKeys;
+        private final long[] offsets; // block starts, plus the end of the last block
+        private final long[] bloom;
+
+        private Run(Path path, FileChannel channel, String[] firstKeys, long[] offsets, long[] bloom) {
+            this.path = path;
+            this.channel = channel;
+            this.firstKeys = firstKeys;
+            this.offsets = offsets;
+            this.bloom = bloom;
+        }
+
+        // ---------------- Writing ----------------
+        /** Write sorted entries to a new run file (moved into place once complete) and open it */
+        private static Run write(Path path, Iterator<Map.Entry<String, String>> entries,
+                                 boolean keepTombstones) throws IOException {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            List<byte[]> keys = new ArrayList<>();
+            List<Long> blockStarts = new ArrayList<>();
+            List<Integer> hashes = new ArrayList<>();
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tmp), 64 * 1024))) {
+                long written = 0;
+                long blockStart = -1;
+                while (entries.hasNext()) {
+                    Map.Entry<String, String> entry = entries.next();
+                    boolean removed = entry.getValue() == TOMBSTONE;
+                    if (removed && !keepTombstones) continue;
+
+                    byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    if (blockStart < 0 || written - blockStart >= BLOCK_BYTES) {
+                        blockStart = written;
+                        blockStarts.add(written);
+                        keys.add(key);
+                    }
+                    hashes.add(entry.getKey().hashCode());
+
+                    out.writeInt(key.length);
+                    out.write(key);
+                    written += 5 + key.length;
+                    if (removed) {
+                        out.writeByte(0);
+                    } else {
+                        byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                        out.writeByte(1);
+                        out.writeInt(value.length);
+                        out.write(value);
+                        written += 4 + value.length;
+                    }
+                }
+
+                long indexOffset = written;
+                out.writeInt(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    out.writeInt(keys.get(i).length);
+                    out.write(keys.get(i));
+                    out.writeLong(blockStarts.get(i));
+                    written += 12 + keys.get(i).length;
+                }
+                written += 4;
+
+                long bloomOffset = written;
+                long[] bits = new long[Math.max(1, (hashes.size() * BLOOM_BITS_PER_KEY + 63) / 64)];
+                for (int hash : hashes) addToBloom(bits, hash);
+                out.writeInt(bits.length);
+                for (long word : bits) out.writeLong(word);
+
+                out.writeLong(indexOffset);
+                out.writeLong(bloomOffset);
+                out.writeInt(RUN_MAGIC);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+
+            SyncPolicy.sync(tmp);
+            moveReplacing(tmp, path);
+            return open(path);
+        }
+
+        // ---------------- Opening ----------------
+        private static Run open(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                ByteBuffer footer = read(channel, size - 20, 20);
+                long indexOffset = footer.getLong();
+                long bloomOffset = footer.getLong();
+                if (footer.getInt() != RUN_MAGIC) throw new IOException("Not a run file: " + path);
+
+                ByteBuffer index = read(channel, indexOffset, (int) (bloomOffset - indexOffset));
+                int blocks = index.getInt();
+                String[] firstKeys = new String[blocks];
+                long[] offsets = new long[blocks + 1];
+                for (int i = 0; i < blocks; i++) {
+                    byte[] key = new byte[index.getInt()];
+                    index.get(key);
+                    firstKeys[i] = new String(key, StandardCharsets.UTF_8);
+                    offsets[i] = index.getLong();
+                }
+                offsets[blocks] = indexOffset;
+
+                ByteBuffer bloomBytes = read(channel, bloomOffset, (int) (size - 20 - bloomOffset));
+                long[] bloom = new long[bloomBytes.getInt()];
+                for (int i = 0; i < bloom.length; i++) bloom[i] = bloomBytes.getLong();
+
+                return new Run(path, channel, firstKeys, offsets, bloom);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e instanceof IOException ? (IOException) e : new IOException("Damaged run file: " + path, e);
+            }
+        }
+
+        // ---------------- Reading ----------------
+        /** The key's value, TOMBSTONE if removed here, or null if this run does not have it */
+        private String get(String key) throws IOException {
+            if (firstKeys.length == 0 || !mightContain(bloom, key.hashCode())) return null;
+
+            // Last block whose first key is <= key
+            int low = 0;
+            int high = firstKeys.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (firstKeys[mid].compareTo(key) <= 0) low = mid; else high = mid - 1;
+            }
+            if (firstKeys[low].compareTo(key) > 0) return null;
+
+            ByteBuffer block = read(channel, offsets[low], (int) (offsets[low + 1] - offsets[low]));
+            byte[] wanted = key.getBytes(StandardCharsets.UTF_8);
+            while (block.hasRemaining()) {
+                int keyLength = block.getInt();
+                boolean match = keyLength == wanted.length
+                        && block.slice(block.position(), keyLength).equals(ByteBuffer.wrap(wanted));
+                block.position(block.position() + keyLength);
+                boolean hasValue = block.get() == 1;
+                int valueLength = hasValue ? block.getInt() : 0;
+                if (match) {
+                    if (!hasValue) return TOMBSTONE;
+                    byte[] value = new byte[valueLength];
+                    block.get(value);
+                    return new String(value, StandardCharsets.UTF_8);
+                }
+                block.position(block.position() + valueLength);
+            }
+            return null;
+        }
+
+        /** Every entry in key order (tombstones included), read sequentially */
+        private Iterator<Map.Entry<String, String>> iterator() {
+            return new Iterator<>() {
+                private long position = 0;
+                private ByteBuffer buffer = ByteBuffer.allocate(0);
+                private int block = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return buffer.hasRemaining() || block < firstKeys.length;
+                }
+
+                @Override
+                public Map.Entry<String, String> next() {
+                    try {
+                        if (!buffer.hasRemaining()) {
+                            if (block >= firstKeys.length) throw new NoSuchElementException();
+                            position = offsets[block];
+                            buffer = read(channel, position, (int) (offsets[block + 1] - position));
+                            block++;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    byte[] key = new byte[buffer.getInt()];
+                    buffer.get(key);
+                    String value = TOMBSTONE;
+                    if (buffer.get() == 1) {
+                        byte[] bytes = new byte[buffer.getInt()];
+                        buffer.get(bytes);
+                        value = new String(bytes, StandardCharsets.UTF_8);
+                    }
+                    return new AbstractMap.SimpleImmutableEntry<>(new String(key, StandardCharsets.UTF_8), value);
+                }
+            };
+        }
+
+        /** Bytes of entries */
+        private long size() {
+            return offsets[offsets.length - 1];
+        }
+
+        private void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                e.printStackTrace(); // removed as an orphan on the next open
+            }
+        }
+
+        private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Run file ends early");
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    // ---------------- Bloom Filter ----------------
+    private static void addToBloom(long[] bits, int hash) {
+        long size = bits.length * 64L;
+        int h1 = mix(hash);
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % size;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static boolean mightContain(long[] bits, int hash) {
+        long size = bits.length * 64L;
+        int h1 = mix(hash);
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % size;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** MurmurHash3 finalizer: spreads String.hashCode over all 32 bits */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
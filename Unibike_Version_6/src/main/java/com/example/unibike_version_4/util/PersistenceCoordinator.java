@@ -0,0 +1,117 @@
+package com.example.unibike_version_4.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence.
+ *
+ * Model classes mark a file dirty instead of saving it right away. Every
+ * dirty file is flushed at most once per window, no matter how many
+ * changes were made to it in between. Call flushNow() before shutdown.
+ * Under SyncPolicy.ALWAYS there is no window by default: every change is
+ * written through (and forced) on its own, in order, on the dispatcher
+ * (the I/O thread in the desktop app) rather than on the caller.
+ */
+public class PersistenceCoordinator {
+    private static final long DEFAULT_WINDOW_MS = 500;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "persistence-coordinator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // key (usually the file) -> action that writes it
+    private static final Map<String, Runnable> dirty = new LinkedHashMap<>();
+    private static ScheduledFuture<?> pending;
+
+    private static long windowMillis = Long.getLong("unibike.flush.window.ms",
+            SyncPolicy.current() == SyncPolicy.ALWAYS ? 0 : DEFAULT_WINDOW_MS);
+    // Where scheduled and write-through flushes run; the desktop app routes them to the I/O thread
+    private static Executor dispatcher = Runnable::run;
+
+    // ---------------- Configuration ----------------
+    public static synchronized void setFlushWindow(long millis) {
+        windowMillis = millis;
+    }
+
+    public static synchronized long getFlushWindow() {
+        return windowMillis;
+    }
+
+    public static synchronized void setDispatcher(Executor executor) {
+        dispatcher = (executor != null) ? executor : Runnable::run;
+    }
+
+    // ---------------- Dirty Tracking ----------------
+    /** Schedule a write of the given key; repeated calls within one window are coalesced */
+    public static void markDirty(String key, Runnable flusher) {
+        Executor target;
+        synchronized (PersistenceCoordinator.class) {
+            dirty.putIfAbsent(key, flusher);
+            target = dispatcher;
+            if (windowMillis > 0) {
+                if (pending == null) {
+                    pending = scheduler.schedule(() -> target.execute(PersistenceCoordinator::flushNow),
+                            windowMillis, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+        }
+        try {
+            target.execute(PersistenceCoordinator::flushNow); // no window: write-through, queued behind earlier writes
+        } catch (RejectedExecutionException e) {
+            flushNow(); // dispatcher already shut down (application exit)
+        }
+    }
+
+    public static synchronized boolean isDirty(String key) {
+        return dirty.containsKey(key);
+    }
+
+    public static synchronized boolean hasPendingWrites() {
+        return !dirty.isEmpty();
+    }
+
+    // ---------------- Flushing ----------------
+    /** Write one key now if it is dirty (e.g. before re-reading its file) */
+    public static void flush(String key) {
+        Runnable flusher;
+        synchronized (PersistenceCoordinator.class) {
+            flusher = dirty.remove(key);
+        }
+        if (flusher != null) {
+            flusher.run();
+        }
+    }
+
+    /** Write every dirty file now, on the calling thread */
+    public static void flushNow() {
+        List<Runnable> flushers;
+        synchronized (PersistenceCoordinator.class) {
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+            flushers = new ArrayList<>(dirty.values());
+            dirty.clear();
+        }
+
+        for (Runnable flusher : flushers) {
+            try {
+                flusher.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
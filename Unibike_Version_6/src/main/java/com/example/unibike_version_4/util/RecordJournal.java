@@ -0,0 +1,315 @@
+package com.example.unibike_version_4.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only change log for keyed CSV records (bicycles, reservations).
+ *
+ * The snapshot file keeps one CSV record per key ("id,..."); the key
+ * is the first field, or the first few fields for compound keys.
+ * A later record with the same key replaces the earlier one.
+ * Every change is appended to a journal next to it instead of rewriting
+ * the snapshot, through a GroupCommitWriter: the journal stays open, and
+ * appends from several threads share one force. Once the journal grows
+ * past the threshold it is sealed and merged into a new snapshot on a
+ * background thread.
+ *
+ * Journal line format:  +,<record>   (insert / update)
+ *                       -,<id>       (removal)
+ *
+ * As a Repository it is the CSV record store behind bicycles, users and
+ * stations: lookups
+ * replay the files, so keep them off hot paths.
+ */
+public class RecordJournal implements Repository<String, String> {
+    private static final long DEFAULT_COMPACT_THRESHOLD = 64 * 1024; // bytes
+    private static final String PUT = "+,";
+    private static final String REMOVE = "-,";
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Path sealedPath;
+    private final long compactThreshold;
+    private final int keyFields;
+    private final GroupCommitWriter writer; // closed before the journal is moved or deleted
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "record-journal-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Bumped whenever the snapshot is rewritten in full, so a stale compaction is discarded
+    private long generation;
+    private boolean compacting;
+
+    // ---------------- Constructor ----------------
+    public RecordJournal(Path snapshotPath) {
+        this(snapshotPath, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public RecordJournal(Path snapshotPath, long compactThreshold) {
+        this(snapshotPath, compactThreshold, 1);
+    }
+
+    /** keyFields: how many leading fields identify a record (e.g. 2 for "user,bike,...") */
+    public RecordJournal(Path snapshotPath, long compactThreshold, int keyFields) {
+        this.snapshotPath = snapshotPath;
+        this.journalPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+        this.sealedPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal.sealed");
+        this.compactThreshold = compactThreshold;
+        this.keyFields = keyFields;
+        this.writer = new GroupCommitWriter(journalPath);
+    }
+
+    /** Every file the current state is read from (snapshot, sealed journal, journal) */
+    public List<Path> files() {
+        return List.of(snapshotPath, sealedPath, journalPath);
+    }
+
+    // ---------------- Appending ----------------
+    /** Record the latest state of one entry */
+    public void append(String record) {
+        appendLines(List.of(PUT + record));
+    }
+
+    /** Record that an entry was removed */
+    public void appendRemoval(String id) {
+        appendLines(List.of(REMOVE + id));
+    }
+
+    /** Record a batch of updates and removals with a single write */
+    public void appendAll(Collection<String> records, Collection<String> removedIds) {
+        List<String> lines = new ArrayList<>(records.size() + removedIds.size());
+        for (String record : records) lines.add(PUT + record);
+        for (String id : removedIds) lines.add(REMOVE + id);
+        if (!lines.isEmpty()) appendLines(lines);
+    }
+
+    /** Queue the lines under the lock, so the journal keeps their order, and wait for them outside it */
+    private void appendLines(List<String> lines) {
+        GroupCommitWriter.Batch batch;
+        synchronized (this) {
+            batch = writer.enqueue(lines);
+        }
+        try {
+            writer.await(batch);
+            synchronized (this) {
+                if (!compacting && Files.exists(journalPath) && Files.size(journalPath) >= compactThreshold) {
+                    sealAndCompact();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Write every queued append and close the journal, so it can be moved or deleted (under the lock) */
+    private void closeJournal() throws IOException {
+        writer.await(writer.enqueue(List.of())); // an empty commit waits for the ones queued before it
+        writer.close();
+    }
+
+    // ---------------- Repository ----------------
+    @Override
+    public synchronized String get(String key) {
+        for (String record : replay()) {
+            if (keyOf(record).equals(key)) return record;
+        }
+        return null;
+    }
+
+    /** The key must be the record's leading field(s) */
+    @Override
+    public void put(String key, String record) {
+        append(record);
+    }
+
+    @Override
+    public void putAll(Map<String, String> records) {
+        appendAll(records.values(), List.of());
+    }
+
+    @Override
+    public void remove(String key) {
+        appendRemoval(key);
+    }
+
+    @Override
+    public void update(Map<String, String> records, Collection<String> removed) {
+        appendAll(records.values(), removed);
+    }
+
+    @Override
+    public List<String> values() {
+        return replay();
+    }
+
+    @Override
+    public void rewrite(Map<String, String> records) {
+        writeSnapshot(records.values());
+    }
+
+    // ---------------- Snapshot & Replay ----------------
+    /** Replace the snapshot with the given records and drop the journal */
+    public synchronized void writeSnapshot(Collection<String> records) {
+        try {
+            Files.createDirectories(snapshotPath.getParent());
+            Path tmp = writeTemp(records, ".tmp");
+            closeJournal(); // appends queued before the rewrite must not land in the next journal
+            moveReplacing(tmp, snapshotPath);
+            Files.deleteIfExists(journalPath);
+            Files.deleteIfExists(sealedPath);
+            generation++;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Snapshot records with every journaled change applied, in snapshot order */
+    public synchronized List<String> replay() {
+        Map<String, String> state = new LinkedHashMap<>();
+        try {
+            writer.await(writer.enqueue(List.of())); // no half-written appends
+            readSnapshot(snapshotPath, state);
+            applyJournal(sealedPath, state);
+            applyJournal(journalPath, state);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>(state.values());
+    }
+
+    // ---------------- Compaction ----------------
+    private void sealAndCompact() throws IOException {
+        closeJournal();
+        if (Files.exists(sealedPath)) {
+            // An earlier compaction failed or was cut short: keep its changes and add ours after them
+            appendToSealed();
+        } else {
+            moveReplacing(journalPath, sealedPath);
+        }
+        compacting = true;
+        long startedAt = generation;
+        compactor.execute(() -> compact(startedAt));
+    }
+
+    private void compact(long startedAt) {
+        Path tmp = null;
+        try {
+            Map<String, String> state = new LinkedHashMap<>();
+            readSnapshot(snapshotPath, state);
+            applyJournal(sealedPath, state);
+            tmp = writeTemp(state.values(), ".compact.tmp");
+
+            synchronized (this) {
+                if (startedAt == generation) {
+                    moveReplacing(tmp, snapshotPath);
+                    Files.deleteIfExists(sealedPath);
+                    tmp = null;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /** Move the journal onto the end of a sealed journal that was never merged */
+    private void appendToSealed() throws IOException {
+        try (FileChannel sealed = FileChannel.open(sealedPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel journal = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            long end = sealed.size();
+            if (end > 0) {
+                // A torn last line must not swallow the first journal line
+                ByteBuffer last = ByteBuffer.allocate(1);
+                sealed.read(last, end - 1);
+                if (last.get(0) != '\n') {
+                    sealed.write(ByteBuffer.wrap(System.lineSeparator().getBytes()), end);
+                    end = sealed.size();
+                }
+            }
+            long size = journal.size();
+            for (long done = 0; done < size; ) {
+                done += journal.transferTo(done, size - done, sealed.position(end + done));
+            }
+            SyncPolicy.sync(sealed);
+        }
+        // Until this delete a crash replays the copied lines twice, which yields the same state
+        Files.delete(journalPath);
+    }
+
+    // ---------------- Helpers ----------------
+    private void readSnapshot(Path path, Map<String, String> state) throws IOException {
+        if (!Files.exists(path)) return;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                state.put(keyOf(line), line);
+            }
+        }
+    }
+
+    private void applyJournal(Path path, Map<String, String> state) throws IOException {
+        if (!Files.exists(path)) return;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PUT)) {
+                    String record = line.substring(PUT.length());
+                    state.put(keyOf(record), record);
+                } else if (line.startsWith(REMOVE)) {
+                    state.remove(line.substring(REMOVE.length()));
+                }
+                // Anything else is a torn write from a crash; skip it
+            }
+        }
+    }
+
+    private String keyOf(String record) {
+        int comma = -1;
+        for (int i = 0; i < keyFields; i++) {
+            comma = record.indexOf(',', comma + 1);
+            if (comma < 0) return record;
+        }
+        return record.substring(0, comma);
+    }
+
+    private Path writeTemp(Collection<String> records, String suffix) throws IOException {
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + suffix);
+        try (BufferedWriter out = Files.newBufferedWriter(tmp)) {
+            for (String record : records) {
+                out.write(record);
+                out.newLine();
+            }
+        }
+        SyncPolicy.sync(tmp); // on disk before it replaces anything
+        return tmp;
+    }
+
+    private static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.unibike_version_4.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keyed storage behind a model class.
+ *
+ * Models see a Repository of their own objects (rides, bicycles and
+ * users by id, stations by name): a CodecRepository turning them into CSV
+ * records for a record store underneath. The record stores are Repository<String, String> keyed by
+ * the record's leading field(s): the CSV files the models have always
+ * written (RideLedger, RecordJournal), and LsmRepository, an embedded
+ * log-structured store for data too large to replay or rewrite in full.
+ *
+ * The ride backend is chosen at startup with -Dunibike.store=csv|lsm (default csv).
+ */
+public interface Repository<K, V> {
+
+    enum Backend {
+        CSV, LSM;
+
+        private static final Backend CURRENT = parse(System.getProperty("unibike.store"));
+
+        public static Backend current() {
+            return CURRENT;
+        }
+
+        /** Backend by name, case-insensitive; CSV if missing or unknown */
+        public static Backend parse(String name) {
+            if (name == null || name.isBlank()) return CSV;
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown unibike.store backend '" + name + "', using CSV");
+                return CSV;
+            }
+        }
+    }
+
+    /** How a model object is stored as one CSV record */
+    interface Codec<K, V> {
+        /** The record's leading field(s) */
+        K keyOf(V value);
+
+        String encode(V value);
+
+        /** The object a record describes, or null if the record is unreadable */
+        V decode(String record);
+    }
+
+    /** Latest value stored under the key, or null */
+    V get(K key);
+
+    /** Store the value under the key (it must be the value's own key, e.g. a record's leading field(s)) */
+    void put(K key, V value);
+
+    /** Store several entries with a single write */
+    default void putAll(Map<K, V> entries) {
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    void remove(K key);
+
+    /** Store the entries and drop the removed keys (one write where the store allows) */
+    default void update(Map<K, V> entries, Collection<K> removed) {
+        putAll(entries);
+        for (K key : removed) {
+            remove(key);
+        }
+    }
+
+    /** Latest value of every key */
+    List<V> values();
+
+    /** Replace everything stored with the given entries */
+    void rewrite(Map<K, V> entries);
+
+    default boolean isEmpty() {
+        return values().isEmpty();
+    }
+}
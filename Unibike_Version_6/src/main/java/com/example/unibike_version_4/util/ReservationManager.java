@@ -1,103 +1,106 @@
 package com.example.unibike_version_4.util;
 
-import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
+/**
+ * Reservations kept in memory, indexed by username and by bike ID.
+ *
+ * reservations.txt is read once (snapshot + journal). After that, additions
+ * and removals update the indexes and append one line to the journal;
+ * removals are written as tombstones. RecordJournal folds the journal back
+ * into the file once it grows past its threshold. A user holds at most one
+ * reservation per bike: a repeated one replaces the earlier date.
+ */
 public class ReservationManager {
 
-    private static final String RESERVATION_FILE = "src/main/resources/data/reservations.txt";
+    private static final Path RESERVATION_FILE = Paths.get("src/main/resources/data/reservations.txt");
+    private static final long COMPACT_THRESHOLD = 64 * 1024; // bytes
+    // Records are keyed by username + bikeId
+    private static final RecordJournal JOURNAL = new RecordJournal(RESERVATION_FILE, COMPACT_THRESHOLD, 2);
+
+    // username -> (bikeId -> date), and bikeId -> usernames holding it
+    private static final Map<String, Map<String, String>> byUser = new HashMap<>();
+    private static final Map<String, Set<String>> byBike = new HashMap<>();
+    private static boolean loaded;
 
     /**
      * Add a new reservation to file
      * Format: username,bikeId,date
      */
-    public static void addReservation(String username, String bikeId, String date) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(RESERVATION_FILE, true))) {
-            bw.write(username + "," + bikeId + "," + date);
-            bw.newLine();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public static synchronized void addReservation(String username, String bikeId, String date) {
+        ensureLoaded();
+        index(username, bikeId, date);
+        JOURNAL.append(username + "," + bikeId + "," + date);
     }
 
     /**
      * Remove a reservation for the given user and bike
      */
-    public static void removeReservation(String username, String bikeId) {
-        File file = new File(RESERVATION_FILE);
-        if (!file.exists()) return;
-
-        List<String> updatedReservations = new ArrayList<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2) {
-                    // Keep all lines that are NOT this reservation
-                    if (!(parts[0].equals(username) && parts[1].equals(bikeId))) {
-                        updatedReservations.add(line);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public static synchronized void removeReservation(String username, String bikeId) {
+        ensureLoaded();
+        Map<String, String> own = byUser.get(username);
+        if (own == null || !own.containsKey(bikeId)) return;
 
-        // Rewrite file
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file, false))) {
-            for (String res : updatedReservations) {
-                bw.write(res);
-                bw.newLine();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        own.remove(bikeId);
+        if (own.isEmpty()) byUser.remove(username);
+        Set<String> holders = byBike.get(bikeId);
+        if (holders != null) {
+            holders.remove(username);
+            if (holders.isEmpty()) byBike.remove(bikeId);
         }
+        JOURNAL.appendRemoval(username + "," + bikeId); // tombstone
     }
 
     /**
      * Get all reservations for a specific user
      * Returns list of strings like: "B001 on 2025-08-01"
      */
-    public static List<String> getUserReservations(String username) {
+    public static synchronized List<String> getUserReservations(String username) {
+        ensureLoaded();
         List<String> userReservations = new ArrayList<>();
-        File file = new File(RESERVATION_FILE);
-        if (!file.exists()) return userReservations;
+        Map<String, String> own = byUser.get(username);
+        if (own == null) return userReservations;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 3 && parts[0].equals(username)) {
-                    String bikeId = parts[1];
-                    String date = parts[2];
-                    userReservations.add(bikeId + " on " + date);
-                }
+        for (Map.Entry<String, String> entry : own.entrySet()) {
+            if (entry.getValue() != null) {
+                userReservations.add(entry.getKey() + " on " + entry.getValue());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
         return userReservations;
     }
 
     /**
-     * Check if a user already has an active reservation for a bike
+     * Check if a user already has an active reservation for a bike (O(1))
      */
-    public static boolean hasReservation(String username, String bikeId) {
-        File file = new File(RESERVATION_FILE);
-        if (!file.exists()) return false;
+    public static synchronized boolean hasReservation(String username, String bikeId) {
+        ensureLoaded();
+        Map<String, String> own = byUser.get(username);
+        return own != null && own.containsKey(bikeId);
+    }
+
+    /** ✅ Check if anyone has reserved the bike (O(1)) */
+    public static synchronized boolean isBikeReserved(String bikeId) {
+        ensureLoaded();
+        return byBike.containsKey(bikeId);
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2 && parts[0].equals(username) && parts[1].equals(bikeId)) {
-                    return true;
-                }
+    // ---------------- Index ----------------
+    private static void ensureLoaded() {
+        if (loaded) return;
+        CsvTokenizer row = new CsvTokenizer();
+        for (String line : JOURNAL.replay()) {
+            row.reset(line);
+            if (row.fieldCount() >= 2) {
+                index(row.nextString(), row.nextString(), row.hasMoreFields() ? row.nextString() : null);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        return false;
+        loaded = true;
+    }
+
+    private static void index(String username, String bikeId, String date) {
+        byUser.computeIfAbsent(username, u -> new LinkedHashMap<>()).put(bikeId, date);
+        byBike.computeIfAbsent(bikeId, b -> new LinkedHashSet<>()).add(username);
     }
 }
@@ -0,0 +1,331 @@
+package com.example.unibike_version_4.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Segmented, append-only log of ride records.
+ *
+ * Ride start and end are appended to the active segment as full CSV
+ * records keyed by ride id, through a GroupCommitWriter that stays open
+ * until the segment is sealed. When the active segment fills up it is
+ * sealed and never written again. Sealed segments are merged in the background
+ * so that every ride keeps only its latest record.
+ *
+ * The legacy single-file ledger (if present) is read as the oldest
+ * segment and folded into the first compaction.
+ *
+ * This is the CSV backend of the ride Repository: point lookups scan the
+ * segments, so use LsmRepository when rides need to be looked up by id.
+ * A removal is written as "-,<ride id>".
+ */
+public class RideLedger implements Repository<String, String> {
+    private static final long DEFAULT_SEGMENT_SIZE = 1024 * 1024; // bytes
+    private static final int DEFAULT_COMPACT_AFTER = 4;            // sealed segments
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+    private static final String REMOVE = "-,";
+
+    private final Path legacyPath;
+    private final Path directory;
+    private final long segmentSize;
+    private final int compactAfter;
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ride-ledger-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private long activeSegment = -1;
+    private boolean compacting;
+    private GroupCommitWriter writer; // appends to the active segment (null until the first append)
+
+    // ---------------- Constructor ----------------
+    public RideLedger(Path legacyPath) {
+        this(legacyPath, DEFAULT_SEGMENT_SIZE, DEFAULT_COMPACT_AFTER);
+    }
+
+    public RideLedger(Path legacyPath, long segmentSize, int compactAfter) {
+        this.legacyPath = legacyPath;
+        this.directory = legacyPath.resolveSibling("rides");
+        this.segmentSize = segmentSize;
+        this.compactAfter = compactAfter;
+    }
+
+    // ---------------- Appending ----------------
+    /** Append the latest state of one ride to the active segment */
+    public synchronized void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    /** Append several ride records with a single write */
+    public synchronized void appendAll(Collection<String> records) {
+        if (records.isEmpty()) return;
+        try {
+            Path active = activePath();
+            if (writer == null) writer = new GroupCommitWriter(active);
+            writer.commit(records);
+            if (Files.size(active) >= segmentSize) {
+                closeWriter();
+                activeSegment++; // seal: the next append opens a fresh segment
+                maybeCompact();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Replace the whole ledger with the given records (one sealed segment) */
+    public synchronized void rewrite(Collection<String> records) {
+        try {
+            closeWriter(); // the active segment is replaced or deleted below
+            List<Path> old = listSegments();
+            long target = activeIndex();
+            Path tmp = writeTemp(records);
+            moveReplacing(tmp, segmentPath(target));
+            for (Path p : old) {
+                if (!p.equals(segmentPath(target))) Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(legacyPath);
+            activeSegment = target + 1;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ---------------- Repository ----------------
+    /** Latest record of one ride, reading segments newest first until it turns up */
+    @Override
+    public synchronized String get(String id) {
+        List<Path> sources = new ArrayList<>();
+        if (Files.exists(legacyPath)) sources.add(legacyPath);
+        try {
+            sources.addAll(listSegments());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        try {
+            for (int i = sources.size() - 1; i >= 0; i--) {
+                Map<String, String> records = readSegment(sources.get(i));
+                if (records.containsKey(id)) return records.get(id); // null if removed there
+            }
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /** The id must be the record's first field */
+    @Override
+    public void put(String id, String record) {
+        append(record);
+    }
+
+    @Override
+    public void putAll(Map<String, String> records) {
+        appendAll(records.values());
+    }
+
+    @Override
+    public void remove(String id) {
+        append(REMOVE + id);
+    }
+
+    @Override
+    public List<String> values() {
+        return replay();
+    }
+
+    @Override
+    public void rewrite(Map<String, String> records) {
+        rewrite(records.values());
+    }
+
+    // ---------------- Replay ----------------
+    /**
+     * Latest record of every ride, in order of first appearance.
+     * Segments are read in parallel and folded oldest to newest.
+     */
+    public synchronized List<String> replay() {
+        List<Path> sources = new ArrayList<>();
+        if (Files.exists(legacyPath)) sources.add(legacyPath);
+        try {
+            sources.addAll(listSegments());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        List<Map<String, String>> parts;
+        try {
+            parts = sources.parallelStream()
+                    .map(RideLedger::readSegment)
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+
+        Map<String, String> merged = new LinkedHashMap<>();
+        for (Map<String, String> part : parts) {
+            fold(merged, part);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    // ---------------- Compaction ----------------
+    private void maybeCompact() throws IOException {
+        if (compacting) return;
+
+        List<Path> sealed = new ArrayList<>();
+        if (Files.exists(legacyPath)) sealed.add(legacyPath);
+        for (Path p : listSegments()) {
+            if (indexOf(p) < activeSegment) sealed.add(p);
+        }
+        if (sealed.size() < compactAfter) return;
+
+        compacting = true;
+        compactor.execute(() -> compact(sealed));
+    }
+
+    private void compact(List<Path> sealed) {
+        Path tmp = null;
+        try {
+            Map<String, String> merged = new LinkedHashMap<>();
+            for (Path p : sealed) {
+                fold(merged, readSegment(p)); // the oldest data takes part, so removals can be dropped
+            }
+            tmp = writeTemp(merged.values());
+
+            // The newest sealed segment takes the merged contents; older ones are dropped
+            Path target = sealed.get(sealed.size() - 1);
+            synchronized (this) {
+                if (Files.exists(target)) {
+                    moveReplacing(tmp, target);
+                    tmp = null;
+                    for (Path p : sealed) {
+                        if (!p.equals(target)) Files.deleteIfExists(p);
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // ---------------- Helpers ----------------
+    private void closeWriter() {
+        if (writer == null) return;
+        writer.close();
+        writer = null;
+    }
+
+    private Path activePath() throws IOException {
+        Files.createDirectories(directory);
+        return segmentPath(activeIndex());
+    }
+
+    private long activeIndex() throws IOException {
+        if (activeSegment < 0) {
+            List<Path> segments = listSegments();
+            // Never append to a segment left over from a previous run
+            activeSegment = segments.isEmpty() ? 1 : indexOf(segments.get(segments.size() - 1)) + 1;
+        }
+        return activeSegment;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) return new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(RideLedger::indexOf))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%08d%s", PREFIX, index, SUFFIX));
+    }
+
+    private static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /** Newer records over older ones; a removal (null) drops the ride */
+    private static void fold(Map<String, String> merged, Map<String, String> newer) {
+        for (Map.Entry<String, String> entry : newer.entrySet()) {
+            if (entry.getValue() == null) {
+                merged.remove(entry.getKey());
+            } else {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /** Latest record per ride in one segment (null for a ride removed there) */
+    private static Map<String, String> readSegment(Path path) {
+        Map<String, String> records = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (line.startsWith(REMOVE)) {
+                    records.put(line.substring(REMOVE.length()), null);
+                    continue;
+                }
+                int comma = line.indexOf(',');
+                records.put(comma < 0 ? line : line.substring(0, comma), line);
+            }
+        } catch (NoSuchFileException e) {
+            // Removed by a finished compaction; its records live in a newer segment
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    private Path writeTemp(Collection<String> records) throws IOException {
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, "compact-", ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp)) {
+            for (String record : records) {
+                out.write(record);
+                out.newLine();
+            }
+        }
+        SyncPolicy.sync(tmp); // on disk before it replaces anything
+        return tmp;
+    }
+
+    private static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -2,20 +2,189 @@ package com.example.unibike_version_4.util;
 
 import com.example.unibike_version_4.model.User;
 
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session store keyed by opaque tokens.
+ *
+ * Any number of sessions can be open at once (e.g. API clients). Idle
+ * sessions are swept in the background, and each user may hold a limited
+ * number of sessions; opening one more closes that user's oldest.
+ *
+ * The desktop UI keeps using setLoggedInUser/getLoggedInUser, which read
+ * and write a single default session that never idles out.
+ */
 public class SessionManager {
-    private static User loggedInUser;
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = 30 * 60 * 1000; // 30 minutes
+    private static final int DEFAULT_MAX_SESSIONS_PER_USER = 5;
+    private static final long SWEEP_INTERVAL_MS = 30 * 1000;
+    private static final int TOKEN_BYTES = 32;
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "session-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // token -> session, and user id -> that user's sessions (oldest first)
+    private static final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private static final Map<String, Deque<Session>> sessionsByUser = new ConcurrentHashMap<>();
+
+    private static volatile long idleTimeoutMillis = Long.getLong("unibike.session.idle.ms", DEFAULT_IDLE_TIMEOUT_MS);
+    private static volatile int maxSessionsPerUser = Integer.getInteger("unibike.session.max.per.user", DEFAULT_MAX_SESSIONS_PER_USER);
+
+    // The desktop UI's session
+    private static volatile Session defaultSession;
+
+    static {
+        sweeper.scheduleWithFixedDelay(SessionManager::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Session {
+        private final String token;
+        private final User user;
+        private final boolean pinned; // never idles out
+        private volatile long lastAccess;
+
+        private Session(String token, User user, boolean pinned) {
+            this.token = token;
+            this.user = user;
+            this.pinned = pinned;
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    // ---------------- Configuration ----------------
+    public static void setIdleTimeout(long millis) {
+        idleTimeoutMillis = millis;
+    }
+
+    public static void setMaxSessionsPerUser(int max) {
+        maxSessionsPerUser = Math.max(1, max);
+    }
+
+    // ---------------- Token Sessions ----------------
+    /** ✅ Open a new session for the user and return its token */
+    public static String openSession(User user) {
+        return open(user, false).token;
+    }
+
+    /** ✅ The user behind a token, or null if it is unknown or idled out (O(1)) */
+    public static User getUser(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        if (session == null) return null;
+
+        long now = System.currentTimeMillis();
+        if (isExpired(session, now)) {
+            close(session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session.user;
+    }
+
+    public static void closeSession(String token) {
+        Session session = (token == null) ? null : sessions.get(token);
+        if (session != null) close(session);
+    }
+
+    /** Close every session of one user (e.g. after a password change) */
+    public static void closeAllSessions(String userId) {
+        // Same per-user compute as open(), so a session opened meanwhile is either closed here or opened after
+        sessionsByUser.computeIfPresent(userId, (id, own) -> {
+            synchronized (own) {
+                for (Session session : own) {
+                    sessions.remove(session.token, session);
+                }
+                own.clear();
+            }
+            return null;
+        });
+    }
 
+    public static int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    // ---------------- Desktop (default session) ----------------
     public static void setLoggedInUser(User user) {
-        loggedInUser = user;
+        Session previous = defaultSession;
+        defaultSession = (user != null) ? open(user, true) : null;
+        if (previous != null) close(previous);
     }
 
     public static User getLoggedInUser() {
-        return loggedInUser;
+        Session session = defaultSession;
+        return (session != null) ? session.user : null;
     }
 
     // ✅ For controllers expecting username
     public static String getLoggedInUsername() {
-        return (loggedInUser != null) ? loggedInUser.getId() : null;
+        User user = getLoggedInUser();
+        return (user != null) ? user.getId() : null;
+    }
+
+    // ---------------- Internals ----------------
+    private static Session open(User user, boolean pinned) {
+        Session session = new Session(newToken(), user, pinned);
+        sessionsByUser.compute(user.getId(), (id, own) -> {
+            if (own == null) own = new ArrayDeque<>();
+            synchronized (own) {
+                // Registered inside the compute, so closeAllSessions never misses it
+                sessions.put(session.token, session);
+                own.addLast(session);
+                // Over the limit: drop the oldest session that may be dropped
+                Iterator<Session> it = own.iterator();
+                while (own.size() > maxSessionsPerUser && it.hasNext()) {
+                    Session oldest = it.next();
+                    if (oldest != session && !oldest.pinned) {
+                        it.remove();
+                        sessions.remove(oldest.token, oldest);
+                    }
+                }
+            }
+            return own;
+        });
+        return session;
+    }
+
+    private static void close(Session session) {
+        sessions.remove(session.token, session);
+        sessionsByUser.computeIfPresent(session.user.getId(), (id, own) -> {
+            synchronized (own) {
+                own.remove(session);
+                return own.isEmpty() ? null : own;
+            }
+        });
+    }
+
+    private static boolean isExpired(Session session, long now) {
+        return !session.pinned && now - session.lastAccess > idleTimeoutMillis;
     }
-}
 
+    private static void sweep() {
+        long now = System.currentTimeMillis();
+        for (Session session : sessions.values()) {
+            if (isExpired(session, now)) {
+                close(session);
+            }
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.unibike_version_4.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * When written data is forced to disk (FileChannel.force).
+ *
+ * NONE    never: the OS writes it back when it likes, so a crash can lose
+ *         the last few seconds of changes
+ * BATCH   once per batch: one force covers every change flushed or
+ *         group-committed together (default)
+ * ALWAYS  once per commit: every change is written through and forced
+ *         on its own (the write-behind window is turned off)
+ *
+ * Chosen at startup with -Dunibike.fsync=none|batch|always.
+ */
+public enum SyncPolicy {
+    NONE, BATCH, ALWAYS;
+
+    private static final SyncPolicy CURRENT = parse(System.getProperty("unibike.fsync"));
+
+    public static SyncPolicy current() {
+        return CURRENT;
+    }
+
+    /** Policy by name, case-insensitive; BATCH if missing or unknown */
+    public static SyncPolicy parse(String name) {
+        if (name == null || name.isBlank()) return BATCH;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown unibike.fsync policy '" + name + "', using BATCH");
+            return BATCH;
+        }
+    }
+
+    // ---------------- Forcing ----------------
+    /** Force a file that was just written (e.g. before it is moved into place) */
+    public static void sync(Path file) throws IOException {
+        if (CURRENT == NONE) return;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(false);
+        }
+    }
+
+    /** Force what was written through an open channel */
+    public static void sync(FileChannel channel) throws IOException {
+        if (CURRENT != NONE) channel.force(false);
+    }
+}
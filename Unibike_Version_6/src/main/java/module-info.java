@@ -1,6 +1,7 @@
 module com.example.unibike_version_4 {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.httpserver;
 
 
     opens com.example.unibike_version_4 to javafx.fxml;
@@ -0,0 +1,65 @@
+package com.example.unibike_version_4.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Claim/release throughput when many threads fight over a few bikes.
+ *
+ * Not run by the test phase. After mvn test-compile:
+ *   java -cp target/classes:target/test-classes \
+ *        com.example.unibike_version_4.model.BicycleClaimBenchmark [threads] [bikes] [seconds]
+ */
+public class BicycleClaimBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int bikes = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        Station station = new Station("Benchmark Station", bikes);
+        List<Bicycle> fleet = new ArrayList<>();
+        for (int i = 0; i < bikes; i++) {
+            fleet.add(new Bicycle("bench-" + i, station.getName(), true));
+        }
+
+        run(threads, fleet, 1); // warmup
+        LongAdder[] result = run(threads, fleet, seconds);
+        long pairs = result[0].sum();
+        long lost = result[1].sum();
+        System.out.printf("%d threads, %d bike(s): %,d claim/release pairs/s, %,d lost claims/s%n",
+                threads, bikes, pairs / seconds, lost / seconds);
+        if (station.getAvailableCount() != bikes) {
+            throw new IllegalStateException("station counters drifted: " + station.getAvailableCount());
+        }
+    }
+
+    /** [0] = successful claim/release pairs, [1] = claims lost to another thread */
+    private static LongAdder[] run(int threads, List<Bicycle> fleet, int seconds) throws InterruptedException {
+        LongAdder pairs = new LongAdder();
+        LongAdder lost = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String userId = "user-" + t;
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    Bicycle bike = fleet.get(random.nextInt(fleet.size()));
+                    if (bike.tryClaim(userId)) {
+                        bike.release();
+                        pairs.increment();
+                    } else {
+                        lost.increment();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        return new LongAdder[]{pairs, lost};
+    }
+}
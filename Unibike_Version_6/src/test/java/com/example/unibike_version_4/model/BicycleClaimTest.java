@@ -0,0 +1,131 @@
+package com.example.unibike_version_4.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Races on Bicycle.tryClaim/release: a bike is never held by two users,
+ * and the station counters agree with the bikes afterwards.
+ */
+class BicycleClaimTest {
+    private static final int THREADS = 32;
+
+    @Test
+    void exactlyOneThreadClaimsAContendedBike() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            Bicycle bike = new Bicycle("claim-race-" + round, "no-such-station", true);
+            AtomicInteger winners = new AtomicInteger();
+            List<String> winnerIds = new ArrayList<>();
+
+            runConcurrently(THREADS, thread -> {
+                String userId = "user-" + thread;
+                if (bike.tryClaim(userId)) {
+                    winners.incrementAndGet();
+                    synchronized (winnerIds) {
+                        winnerIds.add(userId);
+                    }
+                }
+            });
+
+            assertEquals(1, winners.get(), "winners in round " + round);
+            assertEquals(BicycleStatus.RESERVED, bike.getStatus());
+            assertEquals(winnerIds.get(0), bike.getClaimedBy());
+            assertTrue(bike.isClaimedBy(winnerIds.get(0)));
+        }
+    }
+
+    @Test
+    void claimAndReleaseKeepStationCountersConsistent() throws InterruptedException {
+        int bikes = 8;
+        Station station = new Station("Claim Race Station", bikes);
+        List<Bicycle> fleet = new ArrayList<>();
+        for (int i = 0; i < bikes; i++) {
+            fleet.add(new Bicycle("claim-counter-" + i, station.getName(), true));
+        }
+        assertEquals(bikes, station.getAvailableCount());
+
+        // holders[i] counts the threads that believe they hold bike i; it must never exceed 1
+        AtomicIntegerArray holders = new AtomicIntegerArray(bikes);
+        AtomicInteger doubleClaims = new AtomicInteger();
+        AtomicInteger claims = new AtomicInteger();
+
+        runConcurrently(THREADS, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String userId = "user-" + thread;
+            for (int i = 0; i < 20_000; i++) {
+                int index = random.nextInt(bikes);
+                Bicycle bike = fleet.get(index);
+                if (!bike.tryClaim(userId)) continue;
+                claims.incrementAndGet();
+                if (holders.incrementAndGet(index) != 1) doubleClaims.incrementAndGet();
+                if (!bike.isClaimedBy(userId)) doubleClaims.incrementAndGet();
+                holders.decrementAndGet(index);
+                assertTrue(bike.release(), "release of a held bike");
+            }
+        });
+
+        assertTrue(claims.get() > 0);
+        assertEquals(0, doubleClaims.get(), "bikes held by two users at once");
+        assertEquals(bikes, station.getAvailableCount());
+        assertEquals(0, station.getReservedCount());
+        assertEquals(bikes, station.getAvailableBicycles().size());
+        for (Bicycle bike : fleet) {
+            assertEquals(BicycleStatus.AVAILABLE, bike.getStatus());
+            assertNull(bike.getClaimedBy());
+        }
+    }
+
+    @Test
+    void releaseOnlySucceedsForAClaimedBike() {
+        Bicycle bike = new Bicycle("claim-release", "no-such-station", true);
+        assertFalse(bike.release());
+        assertTrue(bike.tryClaim("alice"));
+        assertFalse(bike.tryClaim("bob"));
+        assertTrue(bike.release());
+        assertFalse(bike.release());
+        assertTrue(bike.tryClaim("bob"));
+        assertEquals("bob", bike.getClaimedBy());
+    }
+
+    // ---------------- Helpers ----------------
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    /** Start all threads at once and rethrow the first failure */
+    private static void runConcurrently(int threads, Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread th = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(thread);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            th.start();
+            started.add(th);
+        }
+        start.countDown();
+        for (Thread th : started) {
+            th.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError("worker failed", failures.get(0));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.unibike_version_4.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Station.findByName (name index) against the linear scan it replaced.
+ *
+ * Not run by the test phase. After mvn test-compile:
+ *   java -cp target/classes:target/test-classes \
+ *        com.example.unibike_version_4.model.StationLookupBenchmark [stations] [lookups]
+ */
+public class StationLookupBenchmark {
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) {
+        int stations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        for (int i = 0; i < stations; i++) {
+            new Station("Bench Station " + i, 32, "Campus");
+        }
+        // Mixed case, as typed in the admin panel or read from bicycle.txt
+        Random random = new Random(42);
+        String[] names = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            String name = "Bench Station " + random.nextInt(stations);
+            names[i] = random.nextBoolean() ? name.toUpperCase(Locale.ROOT) : name;
+        }
+
+        measure("index", names, Station::findByName);
+        measure("linear scan", names, StationLookupBenchmark::linearFind);
+    }
+
+    /** What findByName did before the index */
+    private static Station linearFind(String name) {
+        return Station.getAllStations().stream()
+                .filter(s -> s.getName().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private interface Lookup {
+        Station find(String name);
+    }
+
+    private static void measure(String label, String[] names, Lookup lookup) {
+        List<Double> rates = new ArrayList<>();
+        int misses = 0;
+        for (int iteration = 0; iteration < ITERATIONS + 2; iteration++) { // first two are warmup
+            long began = System.nanoTime();
+            for (String name : names) {
+                if (lookup.find(name) == null) misses++;
+            }
+            double seconds = (System.nanoTime() - began) / 1e9;
+            if (iteration >= 2) rates.add(names.length / seconds);
+        }
+        if (misses > 0) throw new IllegalStateException(label + ": " + misses + " lookups failed");
+        System.out.printf("%-12s %,14.0f lookups/s (best %,.0f)%n", label,
+                rates.stream().mapToDouble(Double::doubleValue).average().orElse(0),
+                rates.stream().mapToDouble(Double::doubleValue).max().orElse(0));
+    }
+}
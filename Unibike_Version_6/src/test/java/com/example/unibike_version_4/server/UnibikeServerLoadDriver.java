@@ -0,0 +1,198 @@
+package com.example.unibike_version_4.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load driver for UnibikeServer: N concurrent clients, each on its own
+ * virtual thread, send requests in a closed loop; prints throughput and
+ * p50/p90/p99/max latency.
+ *
+ * The read mix (default) sends GET /stations and GET /bikes?station= and
+ * can run against real data. The ride mix logs client N in as userN /
+ * pwN and alternates POST /rent of a random bike with POST /return, so
+ * it changes the data: run it on what DataBootstrapBenchmark generates.
+ * Needs JDK 21+ and enough file descriptors for two sockets per client
+ * (ulimit -n). Not run by the test phase. From the data's directory after
+ * mvn test-compile:
+ *   java -cp target/classes:target/test-classes \
+ *        com.example.unibike_version_4.server.UnibikeServerLoadDriver [clients] [requestsPerClient] [baseUrl|local] [read|ride]
+ *
+ * With local (or no baseUrl) the server is started in-process on a free
+ * port with the data files under the working directory.
+ */
+public class UnibikeServerLoadDriver {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String baseUrl = args.length > 2 && !args[2].equals("local") ? args[2] : null;
+        boolean rides = args.length > 3 && args[3].equals("ride");
+
+        UnibikeServer server = null;
+        if (baseUrl == null) {
+            UnibikeServer.loadModel();
+            server = new UnibikeServer(0);
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .executor(threads)
+                    .build();
+            List<String> stations = names(client, baseUrl + "/stations");
+            List<String> bikes = rides ? ids(client, baseUrl + "/bikes") : List.of();
+
+            run(client, threads, baseUrl, stations, bikes, rides, Math.min(clients, 100), 10); // warmup
+            run(client, threads, baseUrl, stations, bikes, rides, clients, requests);
+        } finally {
+            if (server != null) server.stop();
+        }
+    }
+
+    private static void run(HttpClient client, ExecutorService threads, String baseUrl, List<String> stations,
+                            List<String> bikes, boolean rides, int clients, int requests) throws InterruptedException {
+        long[][] latencies = new long[clients][];
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger(); // 402/409: a rule said no, not a failure
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int c = 0; c < clients; c++) {
+            int id = c;
+            threads.execute(() -> {
+                long[] mine = new long[requests];
+                int count = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    String token = rides ? login(client, baseUrl, "user" + id, "pw" + id) : null;
+                    String riding = null;
+                    start.await();
+                    for (int i = 0; i < requests; i++) {
+                        HttpRequest request;
+                        String renting = null;
+                        if (!rides) {
+                            String path = (stations.isEmpty() || random.nextInt(4) == 0)
+                                    ? "/stations"
+                                    : "/bikes?station=" + encode(stations.get(random.nextInt(stations.size())));
+                            request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+                        } else if (riding == null) {
+                            renting = bikes.get(random.nextInt(bikes.size()));
+                            request = post(baseUrl + "/rent", token, "bike=" + encode(renting));
+                        } else {
+                            request = post(baseUrl + "/return", token, "bike=" + encode(riding));
+                        }
+                        long began = System.nanoTime();
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 200) {
+                                riding = renting; // rented: return it next; returned: rent again
+                            } else if (rides && (status == 402 || status == 409)) {
+                                refused.incrementAndGet();
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        mine[count++] = System.nanoTime() - began;
+                    }
+                    if (riding != null) { // leave no ride open for the next run (not timed)
+                        client.send(post(baseUrl + "/return", token, "bike=" + encode(riding)),
+                                HttpResponse.BodyHandlers.discarding());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    errors.incrementAndGet(); // login failed
+                } finally {
+                    latencies[id] = Arrays.copyOf(mine, count);
+                    done.countDown();
+                }
+            });
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        done.await();
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%s, %d clients x %d requests: %d done, %d refused, %d errors in %.1f s (%.0f req/s)%n",
+                rides ? "ride" : "read", clients, requests, all.length, refused.get(), errors.get(), seconds,
+                all.length / seconds);
+        System.out.printf("  p50 %.1f ms  p90 %.1f ms  p99 %.1f ms  max %.1f ms%n",
+                percentile(all, 50), percentile(all, 90), percentile(all, 99), percentile(all, 100));
+    }
+
+    /** Station names from GET /stations, so the /bikes requests hit real stations */
+    private static List<String> names(HttpClient client, String url) throws Exception {
+        return field(client, url, "name");
+    }
+
+    /** Bike ids from GET /bikes, so the ride mix rents real bikes */
+    private static List<String> ids(HttpClient client, String url) throws Exception {
+        return field(client, url, "id");
+    }
+
+    private static List<String> field(HttpClient client, String url, String name) throws Exception {
+        String body = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        List<String> values = new ArrayList<>();
+        String key = "\"" + name + "\":\"";
+        for (int at = body.indexOf(key); at >= 0; at = body.indexOf(key, at)) {
+            at += key.length();
+            values.add(body.substring(at, body.indexOf('"', at)));
+        }
+        return values;
+    }
+
+    /** Session token for the ride mix */
+    private static String login(HttpClient client, String baseUrl, String username, String password)
+            throws IOException, InterruptedException {
+        String credentials = Base64.getEncoder().encodeToString(
+                (username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .header("Authorization", "Basic " + credentials)
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) throw new IOException("login " + username + ": " + response.body());
+        String body = response.body();
+        int at = body.indexOf(':') + 2;
+        return body.substring(at, body.indexOf('"', at));
+    }
+
+    private static HttpRequest post(String url, String token, String form) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form)).build();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static double percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
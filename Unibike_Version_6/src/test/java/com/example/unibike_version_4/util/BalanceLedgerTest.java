@@ -0,0 +1,87 @@
+package com.example.unibike_version_4.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceLedgerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void debitNeverGoesBelowZero() {
+        BalanceLedger ledger = new BalanceLedger(dir.resolve("balance.log"));
+        int slot = ledger.open("U1", 500);
+        assertEquals(500, ledger.debit(slot, 700));
+        assertEquals(0, ledger.balance(slot));
+        assertEquals(0, ledger.debit(slot, 100)); // nothing taken, nothing logged
+        assertEquals(250, ledger.credit(slot, 250));
+    }
+
+    @Test
+    void everyTransactionIsLoggedOnceInOrderThroughASmallRing() throws Exception {
+        Path logPath = dir.resolve("balance.log");
+        Set<String> settledAccounts = ConcurrentHashMap.newKeySet();
+        BalanceLedger ledger = new BalanceLedger(logPath, 64, settledAccounts::addAll); // wraps many times
+
+        int threads = 8;
+        int transactions = 2000;
+        int[] slots = new int[threads];
+        for (int t = 0; t < threads; t++) {
+            slots[t] = ledger.open("U" + t, 1_000_000);
+        }
+
+        List<Thread> started = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int slot = slots[t];
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < transactions; i++) {
+                        if (i % 2 == 0) ledger.credit(slot, 7);
+                        else ledger.debit(slot, 5);
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        for (Thread thread : started) thread.join();
+        while (ledger.settle()) {
+            // drain whatever the last writers published
+        }
+        assertTrue(failures.isEmpty(), "transaction failed: " + failures);
+
+        // Each account's lines replay to its balance, in order
+        Map<String, Long> replayed = new HashMap<>();
+        List<String> lines = Files.readAllLines(logPath);
+        assertEquals(threads * transactions, lines.size());
+        for (String line : lines) {
+            String[] fields = line.split(",", -1);
+            long balance = replayed.getOrDefault(fields[1], 1_000_000L) + Long.parseLong(fields[2]);
+            assertEquals(balance, Long.parseLong(fields[3]), line);
+            replayed.put(fields[1], balance);
+        }
+        for (int t = 0; t < threads; t++) {
+            long expected = 1_000_000L + (transactions / 2) * (7 - 5);
+            assertEquals(expected, ledger.balance(slots[t]));
+            assertEquals(expected, (long) replayed.get("U" + t));
+            assertTrue(settledAccounts.contains("U" + t));
+        }
+    }
+}
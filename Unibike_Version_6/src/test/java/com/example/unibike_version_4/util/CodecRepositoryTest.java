@@ -0,0 +1,85 @@
+package com.example.unibike_version_4.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecRepositoryTest {
+
+    private record Dock(String id, int slots) {
+    }
+
+    private static final Repository.Codec<String, Dock> CODEC = new Repository.Codec<>() {
+        @Override
+        public String keyOf(Dock dock) {
+            return dock.id();
+        }
+
+        @Override
+        public String encode(Dock dock) {
+            return dock.id() + "," + dock.slots();
+        }
+
+        @Override
+        public Dock decode(String record) {
+            String[] parts = record.split(",", -1);
+            if (parts.length != 2) return null;
+            try {
+                return new Dock(parts[0], Integer.parseInt(parts[1]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void objectsRoundTripThroughTheJournal() {
+        RecordJournal journal = new RecordJournal(dir.resolve("dock.txt"));
+        CodecRepository<String, Dock> docks = new CodecRepository<>(journal, CODEC);
+        assertTrue(docks.isEmpty());
+
+        docks.saveAll(List.of(new Dock("D1", 10), new Dock("D2", 12), new Dock("D1", 8)));
+        assertEquals(List.of("D1,8", "D2,12"), journal.replay());
+        assertEquals(new Dock("D1", 8), docks.get("D1"));
+        assertNull(docks.get("D9"));
+
+        docks.update(Map.of("D3", new Dock("D3", 4)), List.of("D2"));
+        assertEquals(List.of(new Dock("D1", 8), new Dock("D3", 4)), docks.values());
+
+        docks.rewriteAll(List.of(new Dock("D4", 6)));
+        assertEquals(List.of(new Dock("D4", 6)), docks.values());
+        // A fresh journal over the same file sees the same state
+        assertEquals(List.of(new Dock("D4", 6)),
+                new CodecRepository<>(new RecordJournal(dir.resolve("dock.txt")), CODEC).values());
+    }
+
+    @Test
+    void unreadableRecordsAreSkipped() {
+        RecordJournal journal = new RecordJournal(dir.resolve("dock.txt"));
+        journal.append("D1,5");
+        journal.append("D2,not-a-number");
+        CodecRepository<String, Dock> docks = new CodecRepository<>(journal, CODEC);
+
+        assertEquals(List.of(new Dock("D1", 5)), docks.values());
+        assertNull(docks.get("D2"));
+    }
+
+    @Test
+    void updateOnTheLsmStoreAppliesPutsAndRemovals() {
+        CodecRepository<String, Dock> docks = new CodecRepository<>(new LsmRepository(dir.resolve("docks.lsm")), CODEC);
+        docks.saveAll(List.of(new Dock("D1", 1), new Dock("D2", 2)));
+
+        docks.update(Map.of("D1", new Dock("D1", 3)), List.of("D2"));
+        assertEquals(new Dock("D1", 3), docks.get("D1"));
+        assertNull(docks.get("D2"));
+        assertEquals(List.of(new Dock("D1", 3)), docks.values());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.unibike_version_4.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * FileManager.validateUser (indexed credential cache) against the
+ * read-the-whole-file check it replaced.
+ *
+ * Points user.dir at a temporary directory before FileManager loads, so
+ * the generated user.txt is used instead of the real one.
+ * Not run by the test phase. After mvn test-compile:
+ *   java -cp target/classes:target/test-classes \
+ *        com.example.unibike_version_4.util.CredentialCacheBenchmark [users] [seconds]
+ */
+public class CredentialCacheBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Path dir = Files.createTempDirectory("credential-bench");
+        Path userFile = dir.resolve("user.txt");
+        List<String> lines = new ArrayList<>(users);
+        for (int u = 0; u < users; u++) {
+            lines.add("U" + u + ",user" + u + ",user" + u + "@uni.example,secret" + u + ",25.00");
+        }
+        Files.write(userFile, lines);
+        System.setProperty("user.dir", dir.toString());
+
+        long began = System.nanoTime();
+        if (!FileManager.validateUser("user0", "secret0")) throw new IllegalStateException("index not built");
+        System.out.printf("%,d users, index built in %.0f ms%n", users, (System.nanoTime() - began) / 1e6);
+
+        measure("index", seconds, users, FileManager::validateUser);
+        measure("file scan", seconds, users, (username, password) -> scan(userFile, username, password));
+
+        Files.delete(userFile);
+        Files.delete(dir);
+    }
+
+    /** What validateUser did before the index */
+    private static boolean scan(Path userFile, String username, String password) {
+        try {
+            for (String line : Files.readAllLines(userFile)) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String[] parts = line.split(",", -1);
+                if (parts.length >= 4 && parts[1].trim().equals(username.trim())
+                        && parts[3].trim().equals(password.trim())) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private interface Login {
+        boolean check(String username, String password);
+    }
+
+    private static void measure(String label, int seconds, int users, Login login) {
+        Random random = new Random(7);
+        long logins = 0;
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long began = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            int u = random.nextInt(users);
+            if (!login.check("user" + u, "secret" + u)) throw new IllegalStateException(label + ": login failed");
+            logins++;
+        }
+        double elapsed = (System.nanoTime() - began) / 1e9;
+        System.out.printf("%-10s %,14.1f logins/s%n", label, logins / elapsed);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.unibike_version_4.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Ride and user record parsing with CsvTokenizer against the
+ * split(",") + standard parsers it replaced: lines per second and bytes
+ * allocated per line.
+ *
+ * Works on generated records in a temporary directory.
+ * Not run by the test phase. After mvn test-compile:
+ *   java -cp target/classes:target/test-classes \
+ *        com.example.unibike_version_4.util.CsvBenchmark [lines]
+ */
+public class CsvBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long sink; // keeps the parsed values alive
+
+    private interface Work {
+        void run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(3);
+
+        Path dir = Files.createTempDirectory("csv-bench");
+        Path rideFile = dir.resolve("rides.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(rideFile)) {
+            for (int i = 0; i < lines; i++) {
+                String start = String.format("2025-%02d-%02d %02d:%02d:%02d", 1 + random.nextInt(12),
+                        1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+                String end = i % 10 == 0 ? "In Progress"
+                        : start.substring(0, 14) + String.format("%02d:%02d", random.nextInt(60), random.nextInt(60));
+                writer.write(UUID.randomUUID() + ",U" + random.nextInt(100_000) + ",B" + random.nextInt(20_000)
+                        + "," + start + "," + end + "," + random.nextInt(4000) / 100.0);
+                writer.newLine();
+            }
+        }
+        List<String> rideLines = Files.readAllLines(rideFile);
+        List<String> userLines = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            userLines.add("U" + i + ",user" + i + ",user" + i + "@uni.example,pw" + i + ","
+                    + random.nextInt(1000) + "." + String.format("%02d", random.nextInt(100)) + "," + (i % 9 != 0));
+        }
+
+        CsvTokenizer row = new CsvTokenizer();
+        measure("rides: split + parse", lines, () -> rideLines.forEach(CsvBenchmark::splitRide));
+        measure("rides: CsvTokenizer", lines, () -> rideLines.forEach(line -> tokenizeRide(row.reset(line))));
+        measure("users: split + parse", lines, () -> userLines.forEach(CsvBenchmark::splitUser));
+        measure("users: CsvTokenizer", lines, () -> userLines.forEach(line -> tokenizeUser(row.reset(line))));
+        measure("file: readLine + split", lines, () -> {
+            try (BufferedReader reader = Files.newBufferedReader(rideFile)) {
+                String line;
+                while ((line = reader.readLine()) != null) splitRide(line);
+            }
+        });
+        measure("file: forEachRow", lines, () -> CsvTokenizer.forEachRow(rideFile, ',', CsvBenchmark::tokenizeRide));
+        System.out.println("(sink " + sink + ")");
+
+        Files.delete(rideFile);
+        Files.delete(dir);
+    }
+
+    // ---------------- Before ----------------
+    private static void splitRide(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 6) return;
+        LocalDateTime start = LocalDateTime.parse(parts[3], TIMESTAMP);
+        LocalDateTime end = parts[4].equals("In Progress") ? null : LocalDateTime.parse(parts[4], TIMESTAMP);
+        sink += parts[0].length() + parts[1].length() + parts[2].length() + start.getSecond()
+                + (end == null ? 0 : end.getMinute()) + (long) Double.parseDouble(parts[5]);
+    }
+
+    private static void splitUser(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 6) return;
+        sink += parts[0].length() + parts[1].length() + parts[2].length() + parts[3].length()
+                + BalanceLedger.parseCents(parts[4]) + (Boolean.parseBoolean(parts[5]) ? 1 : 0);
+    }
+
+    // ---------------- CsvTokenizer ----------------
+    private static void tokenizeRide(CsvTokenizer row) {
+        if (row.fieldCount() != 6) return;
+        String id = row.nextString();
+        String user = row.nextString();
+        String bike = row.nextString();
+        LocalDateTime start = row.nextTimestamp();
+        LocalDateTime end = null;
+        if (row.nextEquals("In Progress")) {
+            row.skip();
+        } else {
+            end = row.nextTimestamp();
+        }
+        sink += id.length() + user.length() + bike.length() + start.getSecond()
+                + (end == null ? 0 : end.getMinute()) + (long) row.nextDouble();
+    }
+
+    private static void tokenizeUser(CsvTokenizer row) {
+        if (row.fieldCount() < 6) return;
+        sink += row.nextString().length() + row.nextString().length() + row.nextString().length()
+                + row.nextString().length() + row.nextCents() + (row.nextBoolean() ? 1 : 0);
+    }
+
+    private static void measure(String label, int lines, Work work) throws IOException {
+        for (int i = 0; i < WARMUP; i++) work.run();
+        long thread = Thread.currentThread().getId();
+        long allocated = 0;
+        long nanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+            long began = System.nanoTime();
+            work.run();
+            nanos += System.nanoTime() - began;
+            allocated += THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+        }
+        double perLine = (double) lines * ITERATIONS;
+        System.out.printf("%-24s %,14.0f lines/s %8.1f B/line%n", label, perLine / (nanos / 1e9), allocated / perLine);
+    }
+}
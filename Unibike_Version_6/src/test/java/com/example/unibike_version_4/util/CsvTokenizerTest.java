@@ -0,0 +1,240 @@
+package com.example.unibike_version_4.util;
+
+import com.example.unibike_version_4.model.BicycleStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** CsvTokenizer must read exactly what split(",", -1) and the standard parsers read */
+class CsvTokenizerTest {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String THROWS = "throws";
+
+    private interface Parser {
+        Object parse(String text) throws Exception;
+    }
+
+    private interface Reader {
+        Object read(CsvTokenizer row);
+    }
+
+    @TempDir
+    Path dir;
+
+    // ---------------- Fields ----------------
+    @Test
+    void fieldsMatchSplit() {
+        CsvTokenizer row = new CsvTokenizer();
+        for (String line : List.of("a", "", ",", "a,b,c", ",a,", "a,,b", ",,,", " a , b ",
+                "U1,Ann,ann@uni.edu,pw,12.50,true", "é✓,ü", "x".repeat(5000) + ",y")) {
+            String[] expected = line.split(",", -1);
+            row.reset(line);
+            assertEquals(expected.length, row.fieldCount(), line);
+            for (String field : expected) {
+                assertTrue(row.hasMoreFields(), line);
+                assertEquals(field, row.nextString(), line);
+            }
+            assertFalse(row.hasMoreFields(), line);
+            assertEquals(line, row.line());
+        }
+    }
+
+    @Test
+    void readingPastTheLastFieldThrows() {
+        CsvTokenizer row = new CsvTokenizer().reset("a");
+        row.skip();
+        assertThrows(IllegalStateException.class, row::nextString);
+    }
+
+    @Test
+    void otherDelimiter() {
+        CsvTokenizer row = new CsvTokenizer(';').reset("a;b,c;");
+        assertEquals(3, row.fieldCount());
+        assertEquals("a", row.nextString());
+        assertEquals("b,c", row.nextString());
+        assertEquals("", row.nextString());
+    }
+
+    @Test
+    void resetOnACharRangeReadsOnlyThatRange() {
+        char[] chars = "junk|7,true|junk".toCharArray();
+        CsvTokenizer row = new CsvTokenizer().reset(chars, 5, 11);
+        assertEquals(2, row.fieldCount());
+        assertEquals(7, row.nextInt());
+        assertTrue(row.nextBoolean());
+        assertEquals("7,true", row.line());
+    }
+
+    // ---------------- Parsers ----------------
+    @Test
+    void numbersMatchTheStandardParsers() {
+        List<String> samples = new ArrayList<>(List.of(
+                "0", "-0", "+0", "7", "-7", "+7", "007", "", "-", "+", " 1", "1 ", "1.", ".5", "-.5",
+                "12.50", "94.15", "94.155", "94.145", "-94.155", "0.005", "0.004999", "1e3", "1E-2", "NaN",
+                "Infinity", "-Infinity", "0x10", "1_000", "12a", "--1", "1.2.3",
+                "2147483647", "2147483648", "-2147483648", "-2147483649",
+                "999999999999999999", "9223372036854775807", "9223372036854775808", "-9223372036854775808",
+                "123456789012345", "1234567890123456", "0.1234567890123456789", "123456789.123456789"));
+        Random random = new Random(7);
+        String alphabet = "0123456789.-+eE x";
+        for (int i = 0; i < 50_000; i++) {
+            switch (random.nextInt(4)) {
+                case 0 -> samples.add(Long.toString(random.nextLong() % (long) Math.pow(10, random.nextInt(19))));
+                case 1 -> samples.add((random.nextBoolean() ? "-" : "") + random.nextInt(100_000) + "."
+                        + String.format("%0" + (1 + random.nextInt(6)) + "d", random.nextInt(1000)));
+                case 2 -> samples.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(30) - 10)));
+                default -> {
+                    StringBuilder text = new StringBuilder();
+                    for (int k = random.nextInt(8); k > 0; k--) {
+                        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                    }
+                    samples.add(text.toString());
+                }
+            }
+        }
+
+        for (String sample : samples) {
+            assertReadsLike("int", sample, Integer::parseInt, CsvTokenizer::nextInt);
+            assertReadsLike("long", sample, Long::parseLong, CsvTokenizer::nextLong);
+            assertReadsLike("double", sample, Double::parseDouble, CsvTokenizer::nextDouble);
+            assertReadsLike("cents", sample, BalanceLedger::parseCents, CsvTokenizer::nextCents);
+        }
+    }
+
+    @Test
+    void booleansMatchParseBoolean() {
+        for (String sample : List.of("true", "TRUE", "tRuE", "false", "", "truex", "tru", "1", "yes", " true")) {
+            assertReadsLike("boolean", sample, Boolean::parseBoolean, CsvTokenizer::nextBoolean);
+        }
+    }
+
+    @Test
+    void timestampsMatchTheFormatter() {
+        List<String> samples = new ArrayList<>(List.of(
+                "2025-08-09 12:00:00", "2024-02-29 23:59:59", "2025-02-29 10:00:00", "2025-13-01 00:00:00",
+                "2025-00-10 00:00:00", "2025-01-32 00:00:00", "2025-01-01 24:00:00", "2025-01-01 00:60:00",
+                "2025-01-01 00:00:60", "2025-1-01 00:00:00", "2025-01-01T00:00:00", "2025-01-01 00:00",
+                "2025-01-01 00:00:00.5", "20a5-01-01 00:00:00", "In Progress", ""));
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            samples.add(String.format("%04d-%02d-%02d %02d:%02d:%02d", 1900 + random.nextInt(300),
+                    random.nextInt(14), random.nextInt(33), random.nextInt(25), random.nextInt(61), random.nextInt(61)));
+        }
+        for (String sample : samples) {
+            assertReadsLike("timestamp", sample, text -> LocalDateTime.parse(text, TIMESTAMP), CsvTokenizer::nextTimestamp);
+        }
+    }
+
+    @Test
+    void enumsMatchValueOfOrNull() {
+        BicycleStatus[] statuses = BicycleStatus.values();
+        List<String> samples = new ArrayList<>(List.of("", "available", "AVAILABLEX", " AVAILABLE"));
+        for (BicycleStatus status : statuses) samples.add(status.name());
+
+        for (String sample : samples) {
+            assertReadsLike("enum", sample, text -> {
+                try {
+                    return BicycleStatus.valueOf(text);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }, row -> row.nextEnum(statuses));
+        }
+    }
+
+    @Test
+    void nextEqualsDoesNotConsume() {
+        CsvTokenizer row = new CsvTokenizer().reset("In Progress,In,");
+        assertTrue(row.nextEquals("In Progress"));
+        assertFalse(row.nextEquals("In"));
+        row.skip();
+        assertTrue(row.nextEquals("In"));
+        assertFalse(row.nextEquals("In Progress"));
+        row.skip();
+        assertTrue(row.nextEquals(""));
+        row.skip();
+        assertFalse(row.nextEquals(""));
+    }
+
+    /**
+     * Reads the sample as the middle field of "x,<sample>,y": same value as the
+     * standard parser (or both throw), and the cursor ends on the next field
+     */
+    private static void assertReadsLike(String kind, String sample, Parser standard, Reader fast) {
+        Object expected;
+        try {
+            expected = standard.parse(sample);
+        } catch (Exception e) {
+            expected = THROWS;
+        }
+
+        CsvTokenizer row = new CsvTokenizer().reset("x," + sample + ",y");
+        row.skip();
+        Object actual;
+        try {
+            actual = fast.read(row);
+        } catch (RuntimeException e) {
+            actual = THROWS;
+        }
+        assertEquals(expected, actual, kind + " '" + sample + "'");
+        if (actual != THROWS) {
+            assertEquals("y", row.nextString(), kind + " cursor after '" + sample + "'");
+        }
+    }
+
+    // ---------------- Streaming ----------------
+    @Test
+    void forEachRowMatchesReadAllLines() throws Exception {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                text.append(random.nextBoolean() ? "\n" : "  \r\n"); // blank lines are skipped
+            } else if (i % 10_000 == 5) {
+                text.append("long,").append("x".repeat(200_000)).append("\r\n"); // longer than the buffer
+            } else {
+                text.append("U").append(i).append(",name").append(i).append(",é✓ü,").append(i % 7)
+                        .append(kind % 2 == 0 ? "\r\n" : "\n");
+            }
+        }
+        text.append("last,line"); // no line end
+        Path file = dir.resolve("rows.csv");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        List<String> expected = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (!line.isBlank()) expected.add(line);
+        }
+        List<String> rows = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        CsvTokenizer.forEachRow(file, ',', row -> {
+            rows.add(row.line());
+            counts.add(row.fieldCount());
+        });
+
+        assertEquals(expected, rows);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).split(",", -1).length, (int) counts.get(i), expected.get(i));
+        }
+    }
+
+    @Test
+    void forEachRowOnAnEmptyFile() throws Exception {
+        Path file = dir.resolve("empty.csv");
+        Files.writeString(file, "");
+        List<String> rows = new ArrayList<>();
+        CsvTokenizer.forEachRow(file, ',', row -> rows.add(row.line()));
+        assertTrue(rows.isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.unibike_version_4.util;
+
+import com.example.unibike_version_4.model.Bicycle;
+import com.example.unibike_version_4.model.Ride;
+import com.example.unibike_version_4.model.User;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Startup time of DataBootstrap.load() over generated data: 1M rides by default.
+ *
+ * The model classes read src/main/resources/... relative to the working
+ * directory, so run this from an empty scratch directory; it writes the
+ * data files there and refuses to run where a data folder already exists.
+ * The first load parses the CSV files and writes the fleet snapshot, the
+ * following ones map it. Not run by the test phase. After mvn test-compile:
+ *   cd $(mktemp -d) && java -Xmx3g -cp <project>/target/classes:<project>/target/test-classes \
+ *        com.example.unibike_version_4.util.DataBootstrapBenchmark [rides] [loads]
+ */
+public class DataBootstrapBenchmark {
+    private static final Path DATA = Paths.get("src/main/resources/com/example/unibike_version_4/data");
+    private static final int STATIONS = 200;
+    private static final int BICYCLES = 20_000;
+    private static final int USERS = 100_000;
+
+    public static void main(String[] args) throws IOException {
+        int rides = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int loads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        if (Files.exists(DATA)) {
+            throw new IllegalStateException(DATA.toAbsolutePath() + " exists; run from an empty directory");
+        }
+        generate(rides);
+
+        for (int i = 1; i <= loads; i++) {
+            DataBootstrap.load();
+            System.out.printf("load %d: %,6d ms  (%,d rides, %,d users, %,d bicycles)%n", i, DataBootstrap.loadMillis(),
+                    Ride.getAllRides().size(), User.getAllUsers().size(), Bicycle.getAllBicycles().size());
+        }
+        System.exit(0); // the model keeps daemon and scheduler threads alive
+    }
+
+    private static void generate(int rides) throws IOException {
+        Files.createDirectories(DATA);
+        Random random = new Random(5);
+        try (BufferedWriter writer = Files.newBufferedWriter(DATA.resolve("station.txt"))) {
+            for (int s = 0; s < STATIONS; s++) {
+                writer.write("Station " + s + "," + (BICYCLES / STATIONS + 10) + ",Zone " + (s % 10));
+                writer.newLine();
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(DATA.resolve("bicycle.txt"))) {
+            for (int b = 0; b < BICYCLES; b++) {
+                writer.write("B" + b + ",Station " + (b % STATIONS) + ",true,AVAILABLE");
+                writer.newLine();
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(DATA.resolve("user.txt"))) {
+            for (int u = 0; u < USERS; u++) {
+                writer.write("U" + u + ",user" + u + ",user" + u + "@uni.example,pw" + u + ","
+                        + random.nextInt(10_000) + "." + String.format("%02d", random.nextInt(100)) + ",true");
+                writer.newLine();
+            }
+        }
+        // The legacy single-file ride ledger; one ride in 100 is still in progress
+        try (BufferedWriter writer = Files.newBufferedWriter(DATA.resolve("reservation.txt"))) {
+            for (int r = 0; r < rides; r++) {
+                String start = String.format("2025-%02d-%02d %02d:%02d:%02d", 1 + random.nextInt(12),
+                        1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+                String end = r % 100 == 0 ? "In Progress"
+                        : start.substring(0, 14) + String.format("%02d:%02d", random.nextInt(60), random.nextInt(60));
+                writer.write(UUID.randomUUID() + ",U" + random.nextInt(USERS) + ",B" + random.nextInt(BICYCLES)
+                        + "," + start + "," + end + "," + random.nextInt(4000) / 100.0);
+                writer.newLine();
+            }
+        }
+    }
+}
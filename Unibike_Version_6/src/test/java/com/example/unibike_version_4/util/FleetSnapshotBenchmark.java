@@ -0,0 +1,91 @@
+package com.example.unibike_version_4.util;
+
+import com.example.unibike_version_4.model.Bicycle;
+import com.example.unibike_version_4.model.BicycleStatus;
+import com.example.unibike_version_4.model.Station;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fleet loading from station.txt/bicycle.txt against the mapped FleetSnapshot.
+ *
+ * Works on generated files in a temporary directory, never on the real data.
+ * Not run by the test phase. After mvn test-compile:
+ *   java -cp target/classes:target/test-classes \
+ *        com.example.unibike_version_4.util.FleetSnapshotBenchmark [stations] [bicycles]
+ */
+public class FleetSnapshotBenchmark {
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int stations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int bicycles = args.length > 1 ? Integer.parseInt(args[1]) : 60_000;
+
+        Path dir = Files.createTempDirectory("fleet-bench");
+        Path stationFile = dir.resolve("station.txt");
+        Path bicycleFile = dir.resolve("bicycle.txt");
+        Path snapshotFile = dir.resolve("fleet.bin");
+
+        List<String> stationLines = new ArrayList<>();
+        for (int s = 0; s < stations; s++) {
+            stationLines.add("Station " + s + "," + (bicycles / stations + 10) + ",Zone " + (s % 10));
+        }
+        List<String> bicycleLines = new ArrayList<>();
+        BicycleStatus[] statuses = BicycleStatus.values();
+        for (int b = 0; b < bicycles; b++) {
+            BicycleStatus status = statuses[b % statuses.length];
+            bicycleLines.add(String.format("B%05d,Station %d,%b,%s", b, b % stations,
+                    status == BicycleStatus.AVAILABLE, status));
+        }
+        Files.write(stationFile, stationLines);
+        Files.write(bicycleFile, bicycleLines);
+
+        Runnable csv = () -> {
+            try {
+                Station.loadRecords(Files.readAllLines(stationFile));
+                Bicycle.loadRecords(Files.readAllLines(bicycleFile));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        csv.run();
+        if (!FleetSnapshot.write(snapshotFile, 1, 2, Station.getAllStations(), Bicycle.getAllBicycles())) {
+            throw new IllegalStateException("snapshot not written");
+        }
+        Runnable mapped = () -> {
+            FleetSnapshot fleet = FleetSnapshot.open(snapshotFile);
+            Station.loadSnapshot(fleet);
+            Bicycle.loadSnapshot(fleet);
+        };
+
+        measure("CSV", csv, bicycles);
+        measure("snapshot", mapped, bicycles);
+        System.out.printf("files: CSV %,d bytes, snapshot %,d bytes%n",
+                Files.size(stationFile) + Files.size(bicycleFile), Files.size(snapshotFile));
+
+        for (Path file : List.of(stationFile, bicycleFile, snapshotFile)) Files.delete(file);
+        Files.delete(dir);
+    }
+
+    private static void measure(String label, Runnable load, int bicycles) {
+        double total = 0;
+        double best = Double.MAX_VALUE;
+        for (int iteration = 0; iteration < ITERATIONS + 2; iteration++) { // first two are warmup
+            long began = System.nanoTime();
+            load.run();
+            double millis = (System.nanoTime() - began) / 1e6;
+            if (Bicycle.getAllBicycles().size() != bicycles) {
+                throw new IllegalStateException(label + " loaded " + Bicycle.getAllBicycles().size() + " bicycles");
+            }
+            if (iteration >= 2) {
+                total += millis;
+                best = Math.min(best, millis);
+            }
+        }
+        System.out.printf("%-9s %8.1f ms per load (best %.1f)%n", label, total / ITERATIONS, best);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.unibike_version_4.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Commits per second through GroupCommitWriter for each SyncPolicy and thread count.
+ *
+ * Writes to a temporary directory on the default file system; pass a
+ * directory to measure another disk. Not run by the test phase. After mvn test-compile:
+ *   java -cp target/classes:target/test-classes \
+ *        com.example.unibike_version_4.util.GroupCommitBenchmark [seconds] [dir]
+ */
+public class GroupCommitBenchmark {
+    private static final int[] THREADS = {1, 16, 64};
+    private static final List<String> LINE = List.of("TX,U1042,-250,ride:R000123,2025-08-09 12:00:00");
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        Path dir = args.length > 1 ? Files.createTempDirectory(Path.of(args[1]), "group-commit")
+                : Files.createTempDirectory("group-commit");
+
+        System.out.printf("%-8s %12s %12s %12s%n", "threads", "NONE", "BATCH", "ALWAYS");
+        for (int threads : THREADS) {
+            StringBuilder row = new StringBuilder(String.format("%-8d", threads));
+            for (SyncPolicy policy : SyncPolicy.values()) {
+                row.append(String.format(" %,12.0f", run(dir, policy, threads, seconds)));
+            }
+            System.out.println(row);
+        }
+        Files.delete(dir);
+    }
+
+    /** Commits per second; also checks every committed line reached the file */
+    private static double run(Path dir, SyncPolicy policy, int threads, int seconds) throws Exception {
+        Path file = dir.resolve(policy + "-" + threads + ".log");
+        GroupCommitWriter writer = new GroupCommitWriter(file, policy);
+        LongAdder commits = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline[0]) {
+                        writer.commit(LINE);
+                        commits.increment();
+                    }
+                } catch (IOException | InterruptedException e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long began = System.nanoTime();
+        deadline[0] = began + seconds * 1_000_000_000L;
+        start.countDown();
+        done.await();
+        double elapsed = (System.nanoTime() - began) / 1e9;
+        writer.close();
+
+        long lines;
+        try (var stream = Files.lines(file)) {
+            lines = stream.count();
+        }
+        if (lines != commits.sum()) {
+            throw new IllegalStateException(policy + ": " + commits.sum() + " commits but " + lines + " lines");
+        }
+        Files.delete(file);
+        return commits.sum() / elapsed;
+    }
+}
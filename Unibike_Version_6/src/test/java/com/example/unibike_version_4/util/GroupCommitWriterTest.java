@@ -0,0 +1,88 @@
+package com.example.unibike_version_4.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void emptyCommitAtTheEndOfABatchStillWritesTheBatch() throws Exception {
+        for (SyncPolicy policy : SyncPolicy.values()) {
+            Path file = dir.resolve("log-" + policy);
+            GroupCommitWriter writer = new GroupCommitWriter(file, policy);
+
+            // Both land in the same open batch; the empty one is a barrier (LsmRepository.flushFrozen)
+            GroupCommitWriter.Batch lines = writer.enqueue(List.of("a", "b"));
+            GroupCommitWriter.Batch barrier = writer.enqueue(List.of());
+            assertSame(lines, barrier);
+            writer.await(barrier);
+            writer.close();
+
+            assertEquals(List.of("a", "b"), Files.readAllLines(file), policy.name());
+        }
+    }
+
+    @Test
+    void emptyCommitAloneWritesNothing() throws Exception {
+        Path file = dir.resolve("empty");
+        GroupCommitWriter writer = new GroupCommitWriter(file, SyncPolicy.BATCH);
+        writer.commit(List.of());
+        writer.close();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void concurrentCommitsAreAllWrittenWhole() throws Exception {
+        Path file = dir.resolve("concurrent");
+        GroupCommitWriter writer = new GroupCommitWriter(file, SyncPolicy.BATCH);
+        int threads = 16;
+        int commits = 500;
+
+        List<Thread> started = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread th = new Thread(() -> {
+                try {
+                    for (int i = 0; i < commits; i++) {
+                        List<String> lines = (i % 10 == 0) ? List.of()
+                                : List.of(thread + ":" + i + ":first", thread + ":" + i + ":second");
+                        writer.commit(lines);
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            th.start();
+            started.add(th);
+        }
+        for (Thread th : started) th.join();
+        writer.close();
+        assertTrue(failures.isEmpty(), "commit failed: " + failures);
+
+        List<String> written = Files.readAllLines(file);
+        Set<String> unique = new HashSet<>(written);
+        assertEquals(written.size(), unique.size(), "duplicated lines");
+        assertEquals(threads * (commits - commits / 10) * 2, written.size());
+        // The two lines of one commit are never split by another commit
+        for (int i = 0; i < written.size(); i += 2) {
+            String first = written.get(i);
+            assertTrue(first.endsWith(":first"), first);
+            assertEquals(first.replace(":first", ":second"), written.get(i + 1));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.unibike_version_4.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentAppendsSurviveSealingAndCompaction() throws Exception {
+        RecordJournal journal = new RecordJournal(dir.resolve("bicycle.txt"), 2048); // seals many times
+        int threads = 8;
+        int appends = 2000;
+        int keys = 50;
+
+        List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "T" + t + "_";
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < appends; i++) {
+                    journal.append(prefix + (i % keys) + "," + i);
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        for (Thread thread : started) thread.join();
+
+        // Every key holds the last value its thread appended
+        Map<String, String> state = new HashMap<>();
+        for (String record : journal.replay()) {
+            state.put(record.substring(0, record.indexOf(',')), record);
+        }
+        assertEquals(threads * keys, state.size());
+        for (int t = 0; t < threads; t++) {
+            for (int k = 0; k < keys; k++) {
+                String key = "T" + t + "_" + k;
+                assertEquals(key + "," + (appends - keys + k), state.get(key));
+            }
+        }
+    }
+
+    @Test
+    void appendsAfterASnapshotGoToAFreshJournal() {
+        RecordJournal journal = new RecordJournal(dir.resolve("station.txt"));
+        journal.append("A,1");
+        journal.appendRemoval("A");
+        journal.writeSnapshot(List.of("B,1"));
+        journal.append("C,1");
+        assertEquals(List.of("B,1", "C,1"), journal.replay());
+    }
+}